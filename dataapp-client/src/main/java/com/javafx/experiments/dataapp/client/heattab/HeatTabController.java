@@ -307,7 +307,7 @@ public class HeatTabController implements Initializable {
         System.out.println("fetchResults  "+compareMonth+",  "+toMonth+"  -- "+compareProductID+" , "+toProductID);
         Task<HeatMapQuantity[]> getHeatMapDataTask =  new Task<HeatMapQuantity[]>(){
             @Override protected HeatMapQuantity[] call() throws Exception {
-                return hmc.getProductTypeHeatMap(HeatMapQuantity[].class, compareMonth, toMonth, compareProductID, toProductID);
+                return hmc.getCachedProductTypeHeatMap(compareMonth, toMonth, compareProductID, toProductID);
             }
         };
         // listen for results and then update ui, and fetch initial data
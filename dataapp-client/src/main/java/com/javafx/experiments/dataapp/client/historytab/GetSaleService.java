@@ -33,6 +33,7 @@ package com.javafx.experiments.dataapp.client.historytab;
 
 import com.javafx.experiments.dataapp.client.rest.CumulativeLiveSalesClient;
 import com.javafx.experiments.dataapp.model.Region;
+import com.javafx.experiments.dataapp.model.transit.HistorySnapshot;
 import com.javafx.experiments.dataapp.model.transit.ProductTypeTransitCumulativeSeriesSales;
 import com.javafx.experiments.dataapp.model.transit.RegionTransitCumulativeSales;
 import com.javafx.experiments.dataapp.model.transit.StateTransitCumulativeSales;
@@ -41,6 +42,7 @@ import javafx.concurrent.Service;
 import javafx.concurrent.Task;
 import javafx.util.Pair;
 
+import java.util.List;
 import java.util.concurrent.atomic.AtomicReference;
 
 class GetSaleService extends Service<Pair<ProductTypeTransitCumulativeSeriesSales[], TransitCumulativeSales[]>> {
@@ -70,29 +72,29 @@ class GetSaleService extends Service<Pair<ProductTypeTransitCumulativeSeriesSale
             protected Pair<ProductTypeTransitCumulativeSeriesSales[], TransitCumulativeSales[]> call() throws Exception {
                 ProductTypeTransitCumulativeSeriesSales[] productResults;
                 TransitCumulativeSales[] regionOrStateResults;
+                HistorySnapshot snapshot;
                 if (regionSelection.get().equals("All Regions")) {
-                    productResults = clsClient.findTypeRange(ProductTypeTransitCumulativeSeriesSales[].class, from.get(), to.get());
-                    if (isCancelled()) {
-                        return null;
-                    }
-                    regionOrStateResults = clsClient.findRegionRange(RegionTransitCumulativeSales[].class, from.get(), to.get());
+                    snapshot = clsClient.findSnapshot(HistorySnapshot.class, from.get(), to.get());
                     if (isCancelled()) {
                         return null;
                     }
+                    regionOrStateResults = toArray(snapshot.getRegions(), new RegionTransitCumulativeSales[0]);
                 } else {
-                    int productId = ((Region) regionSelection.get()).getRegionId();
-                    productResults = clsClient.findTypeRegionRange(ProductTypeTransitCumulativeSeriesSales[].class, from.get(), to.get(), productId);
-                    if (isCancelled()) {
-                        return null;
-                    }
-                    regionOrStateResults = clsClient.findRegionStateRange(StateTransitCumulativeSales[].class, from.get(), to.get(), productId);
+                    int regionId = ((Region) regionSelection.get()).getRegionId();
+                    snapshot = clsClient.findRegionSnapshot(HistorySnapshot.class, from.get(), to.get(), regionId);
                     if (isCancelled()) {
                         return null;
                     }
+                    regionOrStateResults = toArray(snapshot.getStates(), new StateTransitCumulativeSales[0]);
                 }
+                productResults = toArray(snapshot.getProductTypes(), new ProductTypeTransitCumulativeSeriesSales[0]);
                 return new Pair<>(productResults, regionOrStateResults);
             }
         };
     }
+
+    private static <T> T[] toArray(List<T> list, T[] empty) {
+        return list == null ? empty : list.toArray(empty);
+    }
     
 }
@@ -68,6 +68,8 @@ public class HistoryTabController implements Runnable, Initializable {
     //private static final NumberFormat priceFormatter = new DecimalFormat("$#,###");
     private static final DateFormat monthFormat = new SimpleDateFormat("MMM");
     private static final DateFormat yearFormat = new SimpleDateFormat("yyyy");
+    // the server downsamples the timeline to this many points however long the history is
+    private static final int TIMELINE_POINTS = 500;
     
     @FXML public TimeRangeSelector timeRangeSelector;
     @FXML public TableView<ProductTypeTransitCumulativeSeriesSales> dataTable;
@@ -82,6 +84,7 @@ public class HistoryTabController implements Runnable, Initializable {
     private final CumulativeLiveSalesClient clsClient = new CumulativeLiveSalesClient();
     private final GetSaleService getSalesService = new GetSaleService(clsClient);
     private TransitCumulativeSales timelineCls[];
+    private double timelineX[];
     private NumberAxis xAxis;
     private boolean pieTwoDisplayingRegions = true;
     
@@ -141,7 +144,7 @@ public class HistoryTabController implements Runnable, Initializable {
                 // fetch initial data in the background
                 final Task<TransitCumulativeSales[]> getCumulativeSales = new Task<TransitCumulativeSales[]>() {
                     @Override protected TransitCumulativeSales[] call() throws Exception {
-                        return clsClient.findAll(TransitCumulativeSales[].class);
+                        return clsClient.findTimeline(TransitCumulativeSales[].class, TIMELINE_POINTS);
                     }
                 };
                 // listen for when the top time range selector chart is populated with data
@@ -149,10 +152,13 @@ public class HistoryTabController implements Runnable, Initializable {
                     @Override public void changed(ObservableValue<? extends State> ov, State t, State newState) {
                         if (newState == State.SUCCEEDED) {
                             timelineCls = getCumulativeSales.getValue();
+                            timelineX = new double[timelineCls.length];
                             List<XYChart.Data<Number, Number>> costData = new ArrayList<>();
                             List<XYChart.Data<Number, Number>> salesData = new ArrayList<>();
-                            for (TransitCumulativeSales timelineCl : timelineCls) {
+                            for (int i = 0; i < timelineCls.length; i++) {
+                                TransitCumulativeSales timelineCl = timelineCls[i];
                                 double day = convertToDecimalMonth(timelineCl.makeCalendar());
+                                timelineX[i] = day;
                                 costData.add(new XYChart.Data<Number, Number>(day, timelineCl.getCost()));
                                 salesData.add(new XYChart.Data<Number, Number>(day, timelineCl.getSales()));
                             }
@@ -277,20 +283,31 @@ public class HistoryTabController implements Runnable, Initializable {
         return c;
     }
     
+    /**
+     * Index of the timeline point closest to the given decimal month
+     */
+    private int nearestTimelinePoint(double decimalMonth) {
+        int nearest = 0;
+        for (int i = 1; i < timelineX.length; i++) {
+            if (Math.abs(timelineX[i] - decimalMonth) < Math.abs(timelineX[nearest] - decimalMonth)) {
+                nearest = i;
+            }
+        }
+        return nearest;
+    }
+
     /**
      * Start/Restart background service to update the table and pie charts when time range changes
      */
     @Override public void run() {
         // clear existing data so progress indicator is shown
         dataTableData.clear();
-        // calculate the data base ids for the selected range
+        // calculate the data base ids for the selected range, the timeline points are not evenly
+        // spaced so take the points nearest to each handle
         final double start = timeRangeSelector.getLeftValue().get();
         final double end = timeRangeSelector.getRightValue().get();
-        double totalSize = xAxis.getUpperBound() - xAxis.getLowerBound();
-        double startIdx = ((start-xAxis.getLowerBound())/totalSize) * timelineCls.length;
-        double endIdx = ((end-xAxis.getLowerBound())/totalSize) * timelineCls.length;
-        int startDayId = timelineCls[(int)endIdx].getStartDailySalesId();
-        int endDayId = timelineCls[(int)startIdx].getEndDailySalesId();
+        int startDayId = timelineCls[nearestTimelinePoint(start)].getStartDailySalesId();
+        int endDayId = timelineCls[nearestTimelinePoint(end)].getEndDailySalesId();
         // setup data service and start it
         getSalesService.setRange(startDayId, endDayId);
         getSalesService.setRegionSelection(regionChoiceBox.getSelectionModel().getSelectedItem());
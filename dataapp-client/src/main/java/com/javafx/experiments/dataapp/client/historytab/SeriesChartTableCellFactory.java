@@ -71,6 +71,7 @@ public class SeriesChartTableCellFactory implements Callback<TableColumn<Product
             chart.setAnimated(false);
 
             xAxis.setLabel(null);
+            xAxis.setForceZeroInRange(false); // the points are placed at their epoch day
             xAxis.setTickMarkVisible(false);
             xAxis.setMinorTickVisible(false);
             xAxis.setTickLabelFormatter(new StringConverter<Number>() { // TODO Remove after RT-16180 is fixed
@@ -103,9 +104,20 @@ public class SeriesChartTableCellFactory implements Callback<TableColumn<Product
             if (empty) {
                 setGraphic(null);
             } else {
+                // long ranges come as weekly, monthly or quarterly sums, plot every point
+                // at the day it starts as units per day so the resolutions compare
+                ProductTypeTransitCumulativeSeriesSales sales = getIndex() < getTableView().getItems().size()
+                        ? getTableView().getItems().get(getIndex()) : null;
+                List<Integer> start = sales == null ? null : sales.getSeriesStart();
+                List<Integer> days = sales == null ? null : sales.getSeriesDays();
+                boolean dated = start != null && days != null && start.size() == item.size() && days.size() == item.size();
                 XYChart.Series<Number, Number> salesSeries = new XYChart.Series<>();
                 for (int i = 0; i < item.size(); i++) {
-                    salesSeries.getData().add(new XYChart.Data<Number, Number>(i, item.get(i)));
+                    if (dated) {
+                        salesSeries.getData().add(new XYChart.Data<Number, Number>(start.get(i), item.get(i) / days.get(i)));
+                    } else {
+                        salesSeries.getData().add(new XYChart.Data<Number, Number>(i, item.get(i)));
+                    }
                 }
 
                 chart.getData().setAll(Collections.singletonList(salesSeries));
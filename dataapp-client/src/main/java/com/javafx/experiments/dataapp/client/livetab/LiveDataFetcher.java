@@ -32,6 +32,7 @@
 package com.javafx.experiments.dataapp.client.livetab;
 
 import com.javafx.experiments.dataapp.client.map.UnitedStatesMapPane;
+import com.javafx.experiments.dataapp.client.rest.LiveSalesStreamClient;
 import com.javafx.experiments.dataapp.client.rest.LiveSalesViewClient;
 import com.javafx.experiments.dataapp.model.LiveSalesList;
 import com.javafx.experiments.dataapp.model.ProductType;
@@ -39,6 +40,7 @@ import com.javafx.experiments.dataapp.model.Region;
 import javafx.animation.KeyFrame;
 import javafx.animation.PauseTransition;
 import javafx.animation.Timeline;
+import javafx.application.Platform;
 import javafx.beans.value.ChangeListener;
 import javafx.beans.value.ObservableValue;
 import javafx.collections.FXCollections;
@@ -62,7 +64,10 @@ import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 
 /**
- * Fetches the latest sales and fetches new sales every 6 seconds
+ * Fetches the latest sales and then streams the new sales as the server pushes
+ * them. Where the event stream is blocked -Ddataapp.live.longpoll=true long-polls
+ * the server for new sales instead, and when streaming is turned off with
+ * -Ddataapp.live.streaming=false new sales are fetched every 6 seconds.
  */
 public class LiveDataFetcher extends Service<List<LiveSalesList>> {
     public static final Map<String,Color> PRODUCT_TYPE_COLOR_MAP = new HashMap<>();
@@ -74,6 +79,9 @@ public class LiveDataFetcher extends Service<List<LiveSalesList>> {
         PRODUCT_TYPE_COLOR_MAP.put("Specialty", Color.web("#2f357f"));
     }
     
+    private static final boolean LONG_POLL = Boolean.getBoolean("dataapp.live.longpoll");
+    private static final boolean STREAMING = !LONG_POLL && Boolean.parseBoolean(System.getProperty("dataapp.live.streaming", "true"));
+
     private final AtomicInteger lastQuery = new AtomicInteger(-1);
     private final AtomicReference<String> regionName = new AtomicReference<>(null);
     private final AtomicInteger productTypeID = new AtomicInteger(-1);
@@ -83,6 +91,7 @@ public class LiveDataFetcher extends Service<List<LiveSalesList>> {
     private final UnitedStatesMapPane map;
     private final Group liveDots;
     private final Timeline refreshTimeline;
+    private LiveSalesStreamClient stream;
     
     public LiveDataFetcher(final TableView<LiveSalesList> liveSales, final UnitedStatesMapPane map,
             final ChoiceBox regionChoiceBox, final ChoiceBox productChoiceBox) {
@@ -125,11 +134,18 @@ public class LiveDataFetcher extends Service<List<LiveSalesList>> {
                     }
                     // we are done reset ready for next run
                     reset();
+                    // from now on new sales are pushed by the server
+                    if (STREAMING && stream == null) openStream();
+                    // or ask again straight away, the server holds the request until there are new sales
+                    if (LONG_POLL) start();
+                } else if (newState == State.FAILED && LONG_POLL) {
+                    // the refresh timeline tries again
+                    reset();
                 }
                 if (getException() != null) getException().printStackTrace();
             }
         });
-        // create pulling timeline execution every 6 seconds
+        // create pulling timeline execution every 6 seconds, when long-polling it only recovers from failures
         refreshTimeline = new Timeline();
         refreshTimeline.getKeyFrames().add(
             new KeyFrame(Duration.millis(6000), new EventHandler<ActionEvent>() {
@@ -139,7 +155,7 @@ public class LiveDataFetcher extends Service<List<LiveSalesList>> {
                         // start new beackground polling
                         start();
                     } else if (getState() == State.RUNNING) {
-                        System.out.println("Still running last poll, skipping ...");
+                        if (!LONG_POLL) System.out.println("Still running last poll, skipping ...");
                     } else {
                         System.err.println("Unexpected state reached in LiveDataFetcher: State="+getState());
                     }
@@ -154,12 +170,13 @@ public class LiveDataFetcher extends Service<List<LiveSalesList>> {
         // run first time to get initial results
         start();
         // start polling
-        refreshTimeline.playFromStart();
+        if (!STREAMING) refreshTimeline.playFromStart();
     }
     
     public void stopFetcher() {
         System.out.println("stopFetcher()");
         refreshTimeline.stop();
+        closeStream();
         // clear data
         liveDots.getChildren().clear();
         liveSales.getItems().clear();
@@ -202,6 +219,7 @@ public class LiveDataFetcher extends Service<List<LiveSalesList>> {
     
     public void regionOrProductChanged() {
         cancel();
+        closeStream();
         boolean regionChanged = updateRegionAndProductSelection();
         if (regionChanged) {
             // pause the data updating to wait for animation to finish
@@ -217,6 +235,36 @@ public class LiveDataFetcher extends Service<List<LiveSalesList>> {
         }
     }
 
+    /**
+     * Stream the sales after the last one shown, for the current region and
+     * product type
+     */
+    private void openStream() {
+        final LiveSalesStreamClient newStream = new LiveSalesStreamClient();
+        stream = newStream;
+        newStream.open(regionName.get(), productTypeID.get(), lastQuery.get(), new LiveSalesStreamClient.Listener() {
+            @Override public void sale(final LiveSalesList sale) {
+                Platform.runLater(new Runnable() {
+                    @Override public void run() {
+                        // ignore sales still arriving from a stream that has been replaced
+                        if (stream != newStream) return;
+                        liveSales.getItems().add(0, sale);
+                        lastQuery.set(sale.getOrderLineId());
+                        liveMapLocate.drawComplex(sale.getLatitude(), sale.getLongitude(), true,
+                                PRODUCT_TYPE_COLOR_MAP.get(sale.getType()));
+                    }
+                });
+            }
+        });
+    }
+
+    private void closeStream() {
+        if (stream != null) {
+            stream.close();
+            stream = null;
+        }
+    }
+
     @Override protected Task<List<LiveSalesList>> createTask() {
         return new Task<List<LiveSalesList>>(){
             /**
@@ -232,7 +280,9 @@ public class LiveDataFetcher extends Service<List<LiveSalesList>> {
                 // fetch results
                 LiveSalesViewClient liveSalesClient = new LiveSalesViewClient();
                 LiveSalesList[] results;
-                if ((regionName != null) && (productTypeID > 0)) { // REGION AND PRODUCT_TYPE SPECIFIED
+                if (LONG_POLL && !isFreshQuery) { // WAIT FOR NEW SALES
+                    results = liveSalesClient.waitFrom(LiveSalesList[].class, regionName, productTypeID, lastQuery);
+                } else if ((regionName != null) && (productTypeID > 0)) { // REGION AND PRODUCT_TYPE SPECIFIED
                     if (isFreshQuery) {
                         results = liveSalesClient.findRecentRegionProductType(LiveSalesList[].class, regionName, productTypeID);
                     } else {
@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2008, 2011 Oracle and/or its affiliates.
+ * All rights reserved. Use is subject to license terms.
+ *
+ * This file is available and licensed under the following license:
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  - Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *  - Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in
+ *    the documentation and/or other materials provided with the distribution.
+ *  - Neither the name of Oracle Corporation nor the names of its
+ *    contributors may be used to endorse or promote products derived
+ *    from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.javafx.experiments.dataapp.client.rest;
+
+import com.javafx.experiments.dataapp.client.DataApplication;
+import com.javafx.experiments.dataapp.model.transit.LiveSalesCodec;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Arrays;
+
+/**
+ * Measures the bytes on the wire and the end to end latency, including
+ * decompression, of the larger REST endpoints for each content encoding.
+ * Run against a deployed server:
+ * <pre>
+ * java CompressionBenchmark [serverUri] [iterations]
+ * </pre>
+ */
+public class CompressionBenchmark {
+    private static final String[] ENDPOINTS = {
+        "com.javafx.experiments.dataapp.model.cumulativelivesales",
+        "com.javafx.experiments.dataapp.model.livesaleslist",
+        "com.javafx.experiments.dataapp.model.livesaleslist/recent",
+        "com.javafx.experiments.dataapp.model.fullproductlisting",
+        "com.javafx.experiments.dataapp.model.heatmap/matrix/-1"
+    };
+    private static final String[] ENCODINGS = {"identity", "gzip", "deflate"};
+
+    public static void main(String[] args) throws IOException {
+        String server = args.length > 0 ? args[0] : DataApplication.SERVER_URI;
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        System.out.printf("%-60s %-9s %-30s %10s %10s %10s%n", "endpoint", "encoding", "type", "bytes", "median ms", "p90 ms");
+        for (String endpoint : ENDPOINTS) {
+            for (String type : new String[]{"application/json", LiveSalesCodec.MEDIA_TYPE}) {
+                if (type.equals(LiveSalesCodec.MEDIA_TYPE) && !endpoint.endsWith("/recent")) continue;
+                for (String encoding : ENCODINGS) {
+                    URL url = new URL(server + "/" + endpoint);
+                    // warm up the server and the connection
+                    fetch(url, type, encoding);
+                    long bytes = 0;
+                    long[] times = new long[iterations];
+                    for (int i = 0; i < iterations; i++) {
+                        long start = System.nanoTime();
+                        bytes = fetch(url, type, encoding);
+                        times[i] = System.nanoTime() - start;
+                    }
+                    Arrays.sort(times);
+                    System.out.printf("%-60s %-9s %-30s %10d %10.1f %10.1f%n", endpoint, encoding, type, bytes,
+                            times[iterations / 2] / 1e6, times[iterations * 9 / 10] / 1e6);
+                }
+            }
+        }
+    }
+
+    /**
+     * Download and decode the endpoint, returns the bytes received
+     */
+    private static long fetch(URL url, String type, String encoding) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        connection.setRequestProperty("Accept", type);
+        connection.setRequestProperty("Accept-Encoding", encoding);
+        CountingInputStream wire = new CountingInputStream(connection.getInputStream());
+        String contentEncoding = connection.getContentEncoding();
+        InputStream in = contentEncoding == null ? null : CompressionFilter.decoding(contentEncoding.toLowerCase(), wire);
+        if (in == null) in = wire;
+        byte[] buffer = new byte[8192];
+        while (in.read(buffer) != -1) {
+            // read to the end, as a client would
+        }
+        in.close();
+        return wire.count;
+    }
+
+    private static class CountingInputStream extends InputStream {
+        private final InputStream in;
+        long count;
+
+        CountingInputStream(InputStream in) {
+            this.in = in;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = in.read();
+            if (b != -1) count++;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read = in.read(b, off, len);
+            if (read > 0) count += read;
+            return read;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
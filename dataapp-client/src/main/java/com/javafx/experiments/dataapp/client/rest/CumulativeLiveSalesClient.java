@@ -43,7 +43,7 @@ public class CumulativeLiveSalesClient {
     private final Client client;
 
     public CumulativeLiveSalesClient() {
-        client = ClientBuilder.newClient().register(JacksonJaxbJsonProvider.class);
+        client = ClientBuilder.newClient().register(JacksonJaxbJsonProvider.class).register(CompressionFilter.class).register(RevalidatingCacheFilter.class);
         rootTarget = client.target(DataApplication.SERVER_URI).path("com.javafx.experiments.dataapp.model.cumulativelivesales");
     }
 
@@ -52,6 +52,11 @@ public class CumulativeLiveSalesClient {
         return target.request(MediaType.APPLICATION_JSON).get(responseType);
     }
     
+    public <T> T findTimeline(Class<T> responseType, int points) {
+        WebTarget target = rootTarget.path("timeline").queryParam("points", points);
+        return target.request(MediaType.APPLICATION_JSON).get(responseType);
+    }
+
     public <T> T findRecent(Class<T> responseType) {
         WebTarget target = rootTarget.path("recent");
         return target.request(MediaType.APPLICATION_JSON).get(responseType);
@@ -82,6 +87,37 @@ public class CumulativeLiveSalesClient {
         return target.request(MediaType.APPLICATION_JSON).get(responseType);
     }
 
+    // date ranges are given in days since 1970-01-01
+    public <T> T findTypeDateRange(Class<T> responseType, String fromEpochDay, String toEpochDay) {
+        WebTarget target = rootTarget.path("type").path("date").path(fromEpochDay).path(toEpochDay);
+        return target.request(MediaType.APPLICATION_JSON).get(responseType);
+    }
+
+    public <T> T findTypeRegionDateRange(Class<T> responseType, String fromEpochDay, String toEpochDay, Integer regionId) {
+        WebTarget target = rootTarget.path("type").path("date").path(fromEpochDay).path(toEpochDay).path(regionId.toString());
+        return target.request(MediaType.APPLICATION_JSON).get(responseType);
+    }
+
+    public <T> T findRegionDateRange(Class<T> responseType, String fromEpochDay, String toEpochDay) {
+        WebTarget target = rootTarget.path("region").path("date").path(fromEpochDay).path(toEpochDay);
+        return target.request(MediaType.APPLICATION_JSON).get(responseType);
+    }
+
+    public <T> T findRegionStateDateRange(Class<T> responseType, String fromEpochDay, String toEpochDay, Integer regionId) {
+        WebTarget target = rootTarget.path("state").path("date").path(fromEpochDay).path(toEpochDay).path(regionId.toString());
+        return target.request(MediaType.APPLICATION_JSON).get(responseType);
+    }
+
+    public <T> T findSnapshot(Class<T> responseType, String from, String to) {
+        WebTarget target = rootTarget.path("snapshot").path(from).path(to);
+        return target.request(MediaType.APPLICATION_JSON).get(responseType);
+    }
+
+    public <T> T findRegionSnapshot(Class<T> responseType, String from, String to, Integer regionId) {
+        WebTarget target = rootTarget.path("snapshot").path(from).path(to).path(regionId.toString());
+        return target.request(MediaType.APPLICATION_JSON).get(responseType);
+    }
+
     public void close() {
         client.close();
     }
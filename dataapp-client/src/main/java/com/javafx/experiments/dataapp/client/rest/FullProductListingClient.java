@@ -44,7 +44,7 @@ public class FullProductListingClient {
     private final Client client;
 
     public FullProductListingClient() {
-        client = ClientBuilder.newClient().register(JacksonJaxbJsonProvider.class);
+        client = ClientBuilder.newClient().register(JacksonJaxbJsonProvider.class).register(CompressionFilter.class);
         rootTarget = client.target(DataApplication.SERVER_URI).path("com.javafx.experiments.dataapp.model.fullproductlisting");
     }
 
@@ -33,18 +33,28 @@ package com.javafx.experiments.dataapp.client.rest;
 
 import com.fasterxml.jackson.jaxrs.json.JacksonJaxbJsonProvider;
 import com.javafx.experiments.dataapp.client.DataApplication;
+import com.javafx.experiments.dataapp.model.Region;
+import com.javafx.experiments.dataapp.model.transit.HeatMapMonths;
+import com.javafx.experiments.dataapp.model.transit.HeatMapQuantity;
 import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import javax.ws.rs.client.Client;
 import javax.ws.rs.client.ClientBuilder;
 import javax.ws.rs.client.WebTarget;
 import javax.ws.rs.core.MediaType;
 
 public class HeatMapClient {
+    // how long a fetched matrix is used before asking the server again, the history only changes once a day
+    private static final long MATRIX_MAX_AGE = 60 * 1000;
+
     private final WebTarget rootTarget;
     private final Client client;
+    private final Map<Integer, HeatMapMonths> matrixCache = new ConcurrentHashMap<>();
+    private final Map<Integer, Long> matrixFetched = new ConcurrentHashMap<>();
 
     public HeatMapClient() {
-        client = ClientBuilder.newClient().register(JacksonJaxbJsonProvider.class);
+        client = ClientBuilder.newClient().register(JacksonJaxbJsonProvider.class).register(CompressionFilter.class).register(RevalidatingCacheFilter.class);
         rootTarget = client.target(DataApplication.SERVER_URI).path("com.javafx.experiments.dataapp.model.heatmap");
     }
 
@@ -68,6 +78,42 @@ public class HeatMapClient {
         return target.request(MediaType.APPLICATION_JSON).get(responseType);
     }
 
+    public <T> T getMatrix(Class<T> responseType, Integer productTypeId) {
+        WebTarget target = rootTarget.path("matrix").path(productTypeId.toString());
+        return target.request(MediaType.APPLICATION_JSON).get(responseType);
+    }
+
+    /**
+     * Same as getProductTypeHeatMap but worked out locally from the month
+     * matrices of the two product types, which are fetched once and then
+     * reused for every month combination
+     */
+    public HeatMapQuantity[] getCachedProductTypeHeatMap(Date date1, Date date2, int productTypeId1, int productTypeId2) {
+        HeatMapMonths months1 = getCachedMatrix(productTypeId1);
+        HeatMapMonths months2 = getCachedMatrix(productTypeId2);
+        int month1 = HeatMapMonths.monthOf(date1);
+        int month2 = HeatMapMonths.monthOf(date2);
+        String[] states = months1.getStates();
+        HeatMapQuantity[] results = new HeatMapQuantity[states.length];
+        for (int s = 0; s < states.length; s++) {
+            long quantity = months1.quantityOf(month1, s) - months2.quantityOf(month2, s);
+            results[s] = new HeatMapQuantity(quantity, states[s], Region.getRegionName(states[s]));
+        }
+        return results;
+    }
+
+    private HeatMapMonths getCachedMatrix(int productTypeId) {
+        HeatMapMonths months = matrixCache.get(productTypeId);
+        Long fetched = matrixFetched.get(productTypeId);
+        if (months == null || fetched == null || System.currentTimeMillis() - fetched > MATRIX_MAX_AGE) {
+            // revalidated by the RevalidatingCacheFilter so an unchanged matrix is not sent again
+            months = getMatrix(HeatMapMonths.class, productTypeId);
+            matrixCache.put(productTypeId, months);
+            matrixFetched.put(productTypeId, System.currentTimeMillis());
+        }
+        return months;
+    }
+
     public void close() {
         client.close();
     }
@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2008, 2011 Oracle and/or its affiliates.
+ * All rights reserved. Use is subject to license terms.
+ *
+ * This file is available and licensed under the following license:
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  - Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *  - Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in
+ *    the documentation and/or other materials provided with the distribution.
+ *  - Neither the name of Oracle Corporation nor the names of its
+ *    contributors may be used to endorse or promote products derived
+ *    from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.javafx.experiments.dataapp.client.rest;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.javafx.experiments.dataapp.client.DataApplication;
+import com.javafx.experiments.dataapp.model.LiveSalesList;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URI;
+import javax.ws.rs.client.Client;
+import javax.ws.rs.client.ClientBuilder;
+import javax.ws.rs.client.Invocation;
+import javax.ws.rs.client.WebTarget;
+
+/**
+ * Reads the Server-Sent Events stream of live sales on a background thread and
+ * hands every sale to a listener. A dropped connection is reopened after a
+ * short delay, resuming after the last sale received.
+ */
+public class LiveSalesStreamClient {
+    // the stream servlet sits next to the REST resources, not under them
+    private static final URI STREAM_URI = URI.create(DataApplication.SERVER_URI).resolve("stream/livesales");
+    private static final long RETRY_DELAY = 3000;
+
+    public interface Listener {
+        /**
+         * Called on the stream thread for every new sale, oldest first
+         */
+        void sale(LiveSalesList sale);
+    }
+
+    private final Client client;
+    private final ObjectMapper mapper = new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    private volatile boolean closed;
+    private volatile InputStream in;
+
+    public LiveSalesStreamClient() {
+        client = ClientBuilder.newClient();
+    }
+
+    /**
+     * Start streaming the sales after fromOrderLineId
+     *
+     * @param region region name or null for all regions
+     * @param productTypeId product type or -1 for all types
+     * @param fromOrderLineId last sale already shown or -1 for only new sales
+     */
+    public void open(final String region, final int productTypeId, final int fromOrderLineId, final Listener listener) {
+        Thread thread = new Thread(new Runnable() {
+            @Override public void run() {
+                stream(region, productTypeId, fromOrderLineId, listener);
+            }
+        }, "LiveSalesStream");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void stream(String region, int productTypeId, int lastId, Listener listener) {
+        while (!closed) {
+            try {
+                WebTarget target = client.target(STREAM_URI);
+                if (region != null) target = target.queryParam("region", region);
+                if (productTypeId > 0) target = target.queryParam("productTypeId", productTypeId);
+                Invocation.Builder request = target.request("text/event-stream");
+                if (lastId >= 0) request = request.header("Last-Event-ID", lastId);
+                in = request.get(InputStream.class);
+                BufferedReader reader = new BufferedReader(new InputStreamReader(in, "UTF-8"));
+                StringBuilder data = new StringBuilder();
+                String line;
+                while (!closed && (line = reader.readLine()) != null) {
+                    if (line.isEmpty()) {
+                        // a blank line ends the event
+                        if (data.length() > 0) {
+                            LiveSalesList sale = mapper.readValue(data.toString(), LiveSalesList.class);
+                            lastId = sale.getOrderLineId();
+                            listener.sale(sale);
+                            data.setLength(0);
+                        }
+                    } else if (line.startsWith("data:")) {
+                        data.append(line.substring(line.startsWith("data: ") ? 6 : 5));
+                    }
+                }
+            } catch (Exception e) {
+                if (closed) return;
+                System.err.println("Live sales stream failed, reconnecting: " + e);
+            }
+            try {
+                Thread.sleep(RETRY_DELAY);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    public void close() {
+        closed = true;
+        InputStream stream = in;
+        if (stream != null) {
+            try {
+                stream.close();
+            } catch (IOException e) {
+                // closing anyway
+            }
+        }
+        client.close();
+    }
+}
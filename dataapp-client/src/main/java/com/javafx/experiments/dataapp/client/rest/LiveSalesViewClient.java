@@ -32,6 +32,8 @@
 package com.javafx.experiments.dataapp.client.rest;
 
 import com.javafx.experiments.dataapp.client.DataApplication;
+import com.javafx.experiments.dataapp.model.transit.LiveSalesCodec;
+import com.javafx.experiments.dataapp.model.transit.LiveSalesListProvider;
 import javax.ws.rs.client.Client;
 import javax.ws.rs.client.ClientBuilder;
 import javax.ws.rs.client.Entity;
@@ -40,11 +42,14 @@ import javax.ws.rs.core.MediaType;
 import com.fasterxml.jackson.jaxrs.json.JacksonJaxbJsonProvider;
 
 public class LiveSalesViewClient {
+    // batches of recent sales come in the compact binary format, with JSON as the fallback for older servers
+    private static final String[] LIVE_SALES_TYPES = {LiveSalesCodec.MEDIA_TYPE, "application/json;q=0.5"};
+
     private final WebTarget rootTarget;
     private final Client client;
 
     public LiveSalesViewClient() {
-        client = ClientBuilder.newClient().register(JacksonJaxbJsonProvider.class);
+        client = ClientBuilder.newClient().register(JacksonJaxbJsonProvider.class).register(CompressionFilter.class).register(LiveSalesListProvider.class);
         rootTarget = client.target(DataApplication.SERVER_URI).path("com.javafx.experiments.dataapp.model.livesaleslist");
     }
 
@@ -81,22 +86,22 @@ public class LiveSalesViewClient {
 
     public <T> T findFrom(Class<T> responseType, Integer from) {
         WebTarget target = rootTarget.path("date").path(from.toString());
-        return target.request(MediaType.APPLICATION_JSON).get(responseType);
+        return target.request(LIVE_SALES_TYPES).get(responseType);
     }
 
     public <T> T findRecent(Class<T> responseType) {
         WebTarget target = rootTarget.path("recent");
-        return target.request(MediaType.APPLICATION_JSON).get(responseType);
+        return target.request(LIVE_SALES_TYPES).get(responseType);
     }
 
     public <T> T findRecentRegion(Class<T> responseType, String region) {
         WebTarget target = rootTarget.path("recent").path("region").path(region);
-        return target.request(MediaType.APPLICATION_JSON).get(responseType);
+        return target.request(LIVE_SALES_TYPES).get(responseType);
     }
 
     public <T> T findRecentProductType(Class<T> responseType, Integer productTypeId) {
         WebTarget target = rootTarget.path("recent").path("producttype").path(productTypeId.toString());
-        return target.request(MediaType.APPLICATION_JSON).get(responseType);
+        return target.request(LIVE_SALES_TYPES).get(responseType);
     }
 
     public <T> T findRecentRegionProductType(Class<T> responseType, String region, Integer productTypeId) {
@@ -106,7 +111,7 @@ public class LiveSalesViewClient {
                 .path("producttype")
                 .path(region)
                 .path(productTypeId.toString());
-        return target.request(MediaType.APPLICATION_JSON).get(responseType);
+        return target.request(LIVE_SALES_TYPES).get(responseType);
     }
 
     public <T> T findRecentRegionFrom(Class<T> responseType, String region, Integer orderLineId) {
@@ -115,7 +120,7 @@ public class LiveSalesViewClient {
                 .path("region")
                 .path(region)
                 .path(orderLineId.toString());
-        return target.request(MediaType.APPLICATION_JSON).get(responseType);
+        return target.request(LIVE_SALES_TYPES).get(responseType);
     }
 
     public <T> T findRecentProductTypeFrom(Class<T> responseType, Integer productTypeId, Integer orderLineId) {
@@ -124,7 +129,7 @@ public class LiveSalesViewClient {
                 .path("producttype")
                 .path(productTypeId.toString())
                 .path(orderLineId.toString());
-        return target.request(MediaType.APPLICATION_JSON).get(responseType);
+        return target.request(LIVE_SALES_TYPES).get(responseType);
     }
 
     public <T> T findRecentRegionProductTypeFrom(Class<T> responseType, String region, Integer productTypeId, Integer orderLineId) {
@@ -135,7 +140,21 @@ public class LiveSalesViewClient {
                 .path(region)
                 .path(productTypeId.toString())
                 .path(orderLineId.toString());
-        return target.request(MediaType.APPLICATION_JSON).get(responseType);
+        return target.request(LIVE_SALES_TYPES).get(responseType);
+    }
+
+    /**
+     * Long-poll for the sales after orderLineId, returns once there are some or
+     * with none after the server's timeout. Region may be null and productTypeId
+     * -1 for all.
+     */
+    public <T> T waitFrom(Class<T> responseType, String region, Integer productTypeId, Integer orderLineId) {
+        WebTarget target = rootTarget
+                .path("wait")
+                .path(orderLineId.toString())
+                .queryParam("productTypeId", productTypeId);
+        if (region != null) target = target.queryParam("region", region);
+        return target.request(LIVE_SALES_TYPES).get(responseType);
     }
 
     public void close() {
@@ -44,7 +44,7 @@ public class ProductTypeClient {
     private final Client client;
 
     public ProductTypeClient() {
-        client = ClientBuilder.newClient().register(JacksonJaxbJsonProvider.class);
+        client = ClientBuilder.newClient().register(JacksonJaxbJsonProvider.class).register(CompressionFilter.class).register(RevalidatingCacheFilter.class);
         rootTarget = client.target(DataApplication.SERVER_URI).path("com.javafx.experiments.dataapp.model.producttype");
     }
 
@@ -44,7 +44,7 @@ public class RegionClient {
     private final Client client;
 
     public RegionClient() {
-        client = ClientBuilder.newClient().register(JacksonJaxbJsonProvider.class);
+        client = ClientBuilder.newClient().register(JacksonJaxbJsonProvider.class).register(CompressionFilter.class).register(RevalidatingCacheFilter.class);
         rootTarget = client.target(DataApplication.SERVER_URI).path("com.javafx.experiments.dataapp.model.region");
     }
 
@@ -0,0 +1,195 @@
+/*
+ * Copyright (c) 2008, 2011 Oracle and/or its affiliates.
+ * All rights reserved. Use is subject to license terms.
+ *
+ * This file is available and licensed under the following license:
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  - Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *  - Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in
+ *    the documentation and/or other materials provided with the distribution.
+ *  - Neither the name of Oracle Corporation nor the names of its
+ *    contributors may be used to endorse or promote products derived
+ *    from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.javafx.experiments.dataapp.client.rest;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.ws.rs.client.ClientRequestContext;
+import javax.ws.rs.client.ClientRequestFilter;
+import javax.ws.rs.client.ClientResponseContext;
+import javax.ws.rs.client.ClientResponseFilter;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
+
+/**
+ * Client filter that keeps every GET response carrying an ETag or Last-Modified
+ * header, in memory and on disk under ~/.dataapp/cache, and revalidates it on
+ * the next request for the same URI. When the server answers 304 Not Modified
+ * the kept body is handed back as if it had just been downloaded, so repeat
+ * launches of the application skip both the transfer and the server side
+ * aggregation.
+ */
+public class RevalidatingCacheFilter implements ClientRequestFilter, ClientResponseFilter {
+    private static final String KEY_PROPERTY = RevalidatingCacheFilter.class.getName() + ".key";
+    private static final File CACHE_DIR = new File(new File(System.getProperty("user.home"), ".dataapp"), "cache");
+    private static final Map<String, Entry> MEMORY = new ConcurrentHashMap<>();
+
+    @Override
+    public void filter(ClientRequestContext request) throws IOException {
+        if (!"GET".equals(request.getMethod())) return;
+        String key = request.getUri() + " " + request.getHeaderString(HttpHeaders.ACCEPT);
+        request.setProperty(KEY_PROPERTY, key);
+        Entry entry = lookup(key);
+        if (entry == null) return;
+        if (!entry.etag.isEmpty()) {
+            request.getHeaders().putSingle(HttpHeaders.IF_NONE_MATCH, entry.etag);
+        }
+        if (!entry.lastModified.isEmpty()) {
+            request.getHeaders().putSingle(HttpHeaders.IF_MODIFIED_SINCE, entry.lastModified);
+        }
+    }
+
+    @Override
+    public void filter(ClientRequestContext request, ClientResponseContext response) throws IOException {
+        String key = (String) request.getProperty(KEY_PROPERTY);
+        if (key == null) return;
+        if (response.getStatus() == Response.Status.NOT_MODIFIED.getStatusCode()) {
+            Entry entry = lookup(key);
+            if (entry == null) return;
+            response.setStatus(Response.Status.OK.getStatusCode());
+            if (!entry.contentType.isEmpty()) {
+                response.getHeaders().putSingle(HttpHeaders.CONTENT_TYPE, entry.contentType);
+            }
+            if (!entry.contentEncoding.isEmpty()) {
+                response.getHeaders().putSingle(HttpHeaders.CONTENT_ENCODING, entry.contentEncoding);
+            }
+            response.getHeaders().remove(HttpHeaders.CONTENT_LENGTH);
+            response.setEntityStream(new ByteArrayInputStream(entry.body));
+        } else if (response.getStatus() == Response.Status.OK.getStatusCode() && response.hasEntity()) {
+            String etag = response.getHeaderString(HttpHeaders.ETAG);
+            String lastModified = response.getHeaderString(HttpHeaders.LAST_MODIFIED);
+            if (etag == null && lastModified == null) return;
+            byte[] body = readFully(response.getEntityStream());
+            response.setEntityStream(new ByteArrayInputStream(body));
+            Entry entry = new Entry(key, etag, lastModified,
+                    response.getHeaderString(HttpHeaders.CONTENT_TYPE),
+                    response.getHeaderString(HttpHeaders.CONTENT_ENCODING), body);
+            MEMORY.put(key, entry);
+            store(entry);
+        }
+    }
+
+    private static Entry lookup(String key) {
+        Entry entry = MEMORY.get(key);
+        if (entry == null) {
+            entry = load(key);
+            if (entry != null) {
+                MEMORY.put(key, entry);
+            }
+        }
+        return entry;
+    }
+
+    // the disk cache is best effort, anything that goes wrong just means a full download
+    private static Entry load(String key) {
+        File file = new File(CACHE_DIR, fileName(key));
+        if (!file.isFile()) return null;
+        try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+            if (!key.equals(in.readUTF())) return null;
+            String etag = in.readUTF();
+            String lastModified = in.readUTF();
+            String contentType = in.readUTF();
+            String contentEncoding = in.readUTF();
+            byte[] body = new byte[in.readInt()];
+            in.readFully(body);
+            return new Entry(key, etag, lastModified, contentType, contentEncoding, body);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static void store(Entry entry) {
+        if (!CACHE_DIR.isDirectory() && !CACHE_DIR.mkdirs()) return;
+        File file = new File(CACHE_DIR, fileName(entry.key));
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(file))) {
+            out.writeUTF(entry.key);
+            out.writeUTF(entry.etag);
+            out.writeUTF(entry.lastModified);
+            out.writeUTF(entry.contentType);
+            out.writeUTF(entry.contentEncoding);
+            out.writeInt(entry.body.length);
+            out.write(entry.body);
+        } catch (IOException e) {
+            file.delete();
+        }
+    }
+
+    private static String fileName(String key) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            return String.format("%040x", new BigInteger(1, digest.digest(key.getBytes("UTF-8"))));
+        } catch (NoSuchAlgorithmException | IOException e) {
+            return Integer.toHexString(key.hashCode());
+        }
+    }
+
+    private static byte[] readFully(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        in.close();
+        return out.toByteArray();
+    }
+
+    private static class Entry {
+        final String key;
+        final String etag;
+        final String lastModified;
+        final String contentType;
+        final String contentEncoding;
+        final byte[] body;
+
+        Entry(String key, String etag, String lastModified, String contentType, String contentEncoding, byte[] body) {
+            this.key = key;
+            this.etag = etag == null ? "" : etag;
+            this.lastModified = lastModified == null ? "" : lastModified;
+            this.contentType = contentType == null ? "" : contentType;
+            this.contentEncoding = contentEncoding == null ? "" : contentEncoding;
+            this.body = body;
+        }
+    }
+}
@@ -85,6 +85,10 @@ public class DailySales implements Serializable {
     @ManyToOne
     private Product product;
 
+    // copy of product.productType.productTypeId so type queries need no join to PRODUCT
+    @Column(name = "PRODUCT_TYPE_ID")
+    private Integer productTypeId;
+
     public DailySales() {
     }
 
@@ -138,6 +142,15 @@ public class DailySales implements Serializable {
 
     public void setProduct(Product product) {
         this.product = product;
+        this.productTypeId = product == null || product.getProductType() == null ? null : product.getProductType().getProductTypeId();
+    }
+
+    public Integer getProductTypeId() {
+        return productTypeId;
+    }
+
+    public void setProductTypeId(Integer productTypeId) {
+        this.productTypeId = productTypeId;
     }
 
     @Override
@@ -0,0 +1,179 @@
+/*
+ * Copyright (c) 2008, 2011 Oracle and/or its affiliates.
+ * All rights reserved. Use is subject to license terms.
+ *
+ * This file is available and licensed under the following license:
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  - Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *  - Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in
+ *    the documentation and/or other materials provided with the distribution.
+ *  - Neither the name of Oracle Corporation nor the names of its
+ *    contributors may be used to endorse or promote products derived
+ *    from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.javafx.experiments.dataapp.model;
+
+import java.io.Serializable;
+import java.util.Date;
+import javax.persistence.Basic;
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.JoinColumn;
+import javax.persistence.ManyToOne;
+import javax.persistence.NamedQueries;
+import javax.persistence.NamedQuery;
+import javax.persistence.Table;
+import javax.persistence.Temporal;
+import javax.persistence.TemporalType;
+import javax.xml.bind.annotation.XmlRootElement;
+
+/**
+ * Totals of the DailySales rows for one date and region, written alongside the
+ * DailySales rows so the history overview does not have to group the whole
+ * DAILY_SALES table on every request. DailySales rows without a region are
+ * totalled in a row with a null region, they still count in the overall totals.
+ */
+@Entity
+@Table(name = "DAILY_TOTALS", catalog = "", schema = "APP")
+@XmlRootElement
+@NamedQueries({
+    @NamedQuery(name = "DailyTotals.findAll", query = "SELECT d FROM DailyTotals d"),
+    @NamedQuery(name = "DailyTotals.findByDateAndRegion", query = "SELECT d FROM DailyTotals d WHERE d.date = :date AND d.region = :region"),
+    @NamedQuery(name = "DailyTotals.findByDateWithoutRegion", query = "SELECT d FROM DailyTotals d WHERE d.date = :date AND d.region IS NULL")})
+public class DailyTotals implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Basic(optional = false)
+    @Column(name = "DAILY_TOTALS_ID")
+    private Integer dailyTotalsId;
+
+    @Column(name = "DATE")
+    @Temporal(TemporalType.DATE)
+    private Date date;
+
+    @JoinColumn(name = "REGION_ID", referencedColumnName = "REGION_ID")
+    @ManyToOne
+    private Region region;
+
+    @Column(name = "MIN_DAILY_SALES_ID")
+    private Integer minDailySalesId;
+
+    @Column(name = "MAX_DAILY_SALES_ID")
+    private Integer maxDailySalesId;
+
+    @Column(name = "COST")
+    private Double cost;
+
+    @Column(name = "SALES")
+    private Double sales;
+
+    public DailyTotals() {
+    }
+
+    public DailyTotals(Integer dailyTotalsId) {
+        this.dailyTotalsId = dailyTotalsId;
+    }
+
+    public Integer getDailyTotalsId() {
+        return dailyTotalsId;
+    }
+
+    public void setDailyTotalsId(Integer dailyTotalsId) {
+        this.dailyTotalsId = dailyTotalsId;
+    }
+
+    public Date getDate() {
+        return date;
+    }
+
+    public void setDate(Date date) {
+        this.date = date;
+    }
+
+    public Region getRegion() {
+        return region;
+    }
+
+    public void setRegion(Region region) {
+        this.region = region;
+    }
+
+    public Integer getMinDailySalesId() {
+        return minDailySalesId;
+    }
+
+    public void setMinDailySalesId(Integer minDailySalesId) {
+        this.minDailySalesId = minDailySalesId;
+    }
+
+    public Integer getMaxDailySalesId() {
+        return maxDailySalesId;
+    }
+
+    public void setMaxDailySalesId(Integer maxDailySalesId) {
+        this.maxDailySalesId = maxDailySalesId;
+    }
+
+    public Double getCost() {
+        return cost;
+    }
+
+    public void setCost(Double cost) {
+        this.cost = cost;
+    }
+
+    public Double getSales() {
+        return sales;
+    }
+
+    public void setSales(Double sales) {
+        this.sales = sales;
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = 0;
+        hash += (dailyTotalsId != null ? dailyTotalsId.hashCode() : 0);
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object object) {
+        // TODO: Warning - this method won't work in the case the id fields are not set
+        if (!(object instanceof DailyTotals)) {
+            return false;
+        }
+        DailyTotals other = (DailyTotals) object;
+        return !((this.dailyTotalsId == null && other.dailyTotalsId != null) || (this.dailyTotalsId != null && !this.dailyTotalsId.equals(other.dailyTotalsId)));
+    }
+
+    @Override
+    public String toString() {
+        return "com.javafx.experiments.dataapp.model.DailyTotals[ dailyTotalsId=" + dailyTotalsId + " ]";
+    }
+
+}
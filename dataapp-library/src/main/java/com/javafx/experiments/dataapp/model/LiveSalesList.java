@@ -45,7 +45,7 @@ import javax.persistence.TemporalType;
 import javax.xml.bind.annotation.XmlRootElement;
 
 @Entity
-@Table(name = "LIVE_SALES_LIST", catalog = "", schema = "APP")
+@Table(name = "LIVE_SALES", catalog = "", schema = "APP")
 @XmlRootElement
 @NamedQueries({
     @NamedQuery(name = "LiveSalesList.findAll", query = "SELECT l FROM LiveSalesList l"),
@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2008, 2011 Oracle and/or its affiliates.
+ * All rights reserved. Use is subject to license terms.
+ *
+ * This file is available and licensed under the following license:
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  - Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *  - Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in
+ *    the documentation and/or other materials provided with the distribution.
+ *  - Neither the name of Oracle Corporation nor the names of its
+ *    contributors may be used to endorse or promote products derived
+ *    from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.javafx.experiments.dataapp.model.transit;
+
+import java.io.Serializable;
+import java.util.Calendar;
+import java.util.Date;
+import javax.xml.bind.annotation.XmlRootElement;
+
+/**
+ * Quantities sold per state for every month of the history, for one product
+ * type or all of them. The quantities are held month after month, each month
+ * being one value per state in the order of states, so any two months can be
+ * compared on the client without going back to the server.
+ */
+@XmlRootElement
+public class HeatMapMonths implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private int firstMonth;
+    private int monthCount;
+    private String[] states;
+    private long[] quantities;
+
+    /**
+     * Number of the calendar month the date falls in, year * 12 + month
+     */
+    public static int monthOf(Date date) {
+        Calendar cal = Calendar.getInstance();
+        cal.setTime(date);
+        return cal.get(Calendar.YEAR) * 12 + cal.get(Calendar.MONTH);
+    }
+
+    /**
+     * Quantity sold in the state over the given month, as numbered by monthOf
+     */
+    public long quantityOf(int month, int state) {
+        int m = month - firstMonth;
+        if (m < 0 || m >= monthCount) return 0;
+        return quantities[m * states.length + state];
+    }
+
+    public int getFirstMonth() {
+        return firstMonth;
+    }
+
+    public void setFirstMonth(int firstMonth) {
+        this.firstMonth = firstMonth;
+    }
+
+    public int getMonthCount() {
+        return monthCount;
+    }
+
+    public void setMonthCount(int monthCount) {
+        this.monthCount = monthCount;
+    }
+
+    public String[] getStates() {
+        return states;
+    }
+
+    public void setStates(String[] states) {
+        this.states = states;
+    }
+
+    public long[] getQuantities() {
+        return quantities;
+    }
+
+    public void setQuantities(long[] quantities) {
+        this.quantities = quantities;
+    }
+}
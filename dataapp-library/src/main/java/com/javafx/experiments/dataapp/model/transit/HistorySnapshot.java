@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2008, 2011 Oracle and/or its affiliates.
+ * All rights reserved. Use is subject to license terms.
+ *
+ * This file is available and licensed under the following license:
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  - Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *  - Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in
+ *    the documentation and/or other materials provided with the distribution.
+ *  - Neither the name of Oracle Corporation nor the names of its
+ *    contributors may be used to endorse or promote products derived
+ *    from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.javafx.experiments.dataapp.model.transit;
+
+import java.io.Serializable;
+import java.util.List;
+import javax.xml.bind.annotation.XmlRootElement;
+
+/**
+ * Everything the history tab shows for one range: the product type totals with
+ * their series and either the region or, when a region is selected, the state
+ * breakdown.
+ */
+@XmlRootElement
+public class HistorySnapshot implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private List<ProductTypeTransitCumulativeSeriesSales> productTypes;
+    private List<RegionTransitCumulativeSales> regions;
+    private List<StateTransitCumulativeSales> states;
+
+    public List<ProductTypeTransitCumulativeSeriesSales> getProductTypes() {
+        return productTypes;
+    }
+
+    public void setProductTypes(List<ProductTypeTransitCumulativeSeriesSales> productTypes) {
+        this.productTypes = productTypes;
+    }
+
+    public List<RegionTransitCumulativeSales> getRegions() {
+        return regions;
+    }
+
+    public void setRegions(List<RegionTransitCumulativeSales> regions) {
+        this.regions = regions;
+    }
+
+    public List<StateTransitCumulativeSales> getStates() {
+        return states;
+    }
+
+    public void setStates(List<StateTransitCumulativeSales> states) {
+        this.states = states;
+    }
+}
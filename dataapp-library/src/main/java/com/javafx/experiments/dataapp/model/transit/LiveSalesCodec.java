@@ -0,0 +1,207 @@
+/*
+ * Copyright (c) 2008, 2011 Oracle and/or its affiliates.
+ * All rights reserved. Use is subject to license terms.
+ *
+ * This file is available and licensed under the following license:
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  - Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *  - Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in
+ *    the documentation and/or other materials provided with the distribution.
+ *  - Neither the name of Oracle Corporation nor the names of its
+ *    contributors may be used to endorse or promote products derived
+ *    from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.javafx.experiments.dataapp.model.transit;
+
+import com.javafx.experiments.dataapp.model.LiveSalesList;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact binary encoding of a batch of LiveSalesList rows, served as
+ * application/x-dataapp-live. Strings are written once per batch and then
+ * referred to by their index in the batch dictionary, orderLineId and date are
+ * written as the difference to the previous row, latitude and longitude as
+ * floats and the remaining numbers as variable length ints.
+ */
+public final class LiveSalesCodec {
+
+    public static final String MEDIA_TYPE = "application/x-dataapp-live";
+
+    private static final int VERSION = 1;
+
+    // bits of the per row mask telling which nullable numbers are present
+    private static final int HAS_DATE = 1;
+    private static final int HAS_PRODUCT_TYPE = 2;
+    private static final int HAS_PRICE = 4;
+    private static final int HAS_LATITUDE = 8;
+    private static final int HAS_LONGITUDE = 16;
+    private static final int HAS_QUANTITY = 32;
+
+    private LiveSalesCodec() {
+    }
+
+    public static void write(List<LiveSalesList> sales, OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeByte(VERSION);
+        writeVarInt(data, sales.size());
+        // index 0 stands for null, strings are numbered from 1 as they are first written
+        Map<String, Integer> dictionary = new HashMap<>();
+        int lastOrderLineId = 0;
+        long lastDate = 0;
+        for (LiveSalesList sale : sales) {
+            int mask = 0;
+            if (sale.getDate() != null) mask |= HAS_DATE;
+            if (sale.getProductTypeId() != null) mask |= HAS_PRODUCT_TYPE;
+            if (sale.getPrice() != null) mask |= HAS_PRICE;
+            if (sale.getLatitude() != null) mask |= HAS_LATITUDE;
+            if (sale.getLongitude() != null) mask |= HAS_LONGITUDE;
+            if (sale.getQuantity() != null) mask |= HAS_QUANTITY;
+            data.writeByte(mask);
+            writeVarLong(data, zigZag(sale.getOrderLineId() - (long) lastOrderLineId));
+            lastOrderLineId = sale.getOrderLineId();
+            if (sale.getDate() != null) {
+                writeVarLong(data, zigZag(sale.getDate().getTime() - lastDate));
+                lastDate = sale.getDate().getTime();
+            }
+            if (sale.getProductTypeId() != null) writeVarLong(data, zigZag(sale.getProductTypeId()));
+            if (sale.getPrice() != null) data.writeDouble(sale.getPrice());
+            if (sale.getLatitude() != null) data.writeFloat(sale.getLatitude().floatValue());
+            if (sale.getLongitude() != null) data.writeFloat(sale.getLongitude().floatValue());
+            if (sale.getQuantity() != null) writeVarLong(data, zigZag(sale.getQuantity()));
+            writeString(data, dictionary, sale.getProduct());
+            writeString(data, dictionary, sale.getType());
+            writeString(data, dictionary, sale.getSubType());
+            writeString(data, dictionary, sale.getRegion());
+            writeString(data, dictionary, sale.getChannel());
+            writeString(data, dictionary, sale.getCity());
+            writeString(data, dictionary, sale.getState());
+            writeString(data, dictionary, sale.getDealer());
+            writeString(data, dictionary, sale.getSalesman());
+        }
+        data.flush();
+    }
+
+    public static List<LiveSalesList> read(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        int version = data.readUnsignedByte();
+        if (version != VERSION) throw new IOException("Unsupported " + MEDIA_TYPE + " version " + version);
+        int count = (int) readVarLong(data);
+        List<LiveSalesList> sales = new ArrayList<>(count);
+        List<String> dictionary = new ArrayList<>();
+        dictionary.add(null);
+        int lastOrderLineId = 0;
+        long lastDate = 0;
+        for (int i = 0; i < count; i++) {
+            LiveSalesList sale = new LiveSalesList();
+            int mask = data.readUnsignedByte();
+            lastOrderLineId += (int) unZigZag(readVarLong(data));
+            sale.setOrderLineId(lastOrderLineId);
+            if ((mask & HAS_DATE) != 0) {
+                lastDate += unZigZag(readVarLong(data));
+                sale.setDate(new Date(lastDate));
+            }
+            if ((mask & HAS_PRODUCT_TYPE) != 0) sale.setProductTypeId((int) unZigZag(readVarLong(data)));
+            if ((mask & HAS_PRICE) != 0) sale.setPrice(data.readDouble());
+            if ((mask & HAS_LATITUDE) != 0) sale.setLatitude((double) data.readFloat());
+            if ((mask & HAS_LONGITUDE) != 0) sale.setLongitude((double) data.readFloat());
+            if ((mask & HAS_QUANTITY) != 0) sale.setQuantity((int) unZigZag(readVarLong(data)));
+            sale.setProduct(readString(data, dictionary));
+            sale.setType(readString(data, dictionary));
+            sale.setSubType(readString(data, dictionary));
+            sale.setRegion(readString(data, dictionary));
+            sale.setChannel(readString(data, dictionary));
+            sale.setCity(readString(data, dictionary));
+            sale.setState(readString(data, dictionary));
+            sale.setDealer(readString(data, dictionary));
+            sale.setSalesman(readString(data, dictionary));
+            sales.add(sale);
+        }
+        return sales;
+    }
+
+    /**
+     * Writes the index of the string in the dictionary, a string not seen yet
+     * in the batch gets the next index and is written in full after it
+     */
+    private static void writeString(DataOutputStream data, Map<String, Integer> dictionary, String value) throws IOException {
+        if (value == null) {
+            writeVarLong(data, 0);
+            return;
+        }
+        Integer index = dictionary.get(value);
+        if (index != null) {
+            writeVarLong(data, index);
+        } else {
+            index = dictionary.size() + 1;
+            dictionary.put(value, index);
+            writeVarLong(data, index);
+            data.writeUTF(value);
+        }
+    }
+
+    private static String readString(DataInputStream data, List<String> dictionary) throws IOException {
+        int index = (int) readVarLong(data);
+        if (index < dictionary.size()) return dictionary.get(index);
+        if (index != dictionary.size()) throw new IOException("Corrupt " + MEDIA_TYPE + " string index " + index);
+        String value = data.readUTF();
+        dictionary.add(value);
+        return value;
+    }
+
+    private static void writeVarInt(DataOutputStream data, int value) throws IOException {
+        writeVarLong(data, value & 0xFFFFFFFFL);
+    }
+
+    private static void writeVarLong(DataOutputStream data, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            data.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        data.writeByte((int) value);
+    }
+
+    private static long readVarLong(DataInputStream data) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = data.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+        throw new IOException("Corrupt " + MEDIA_TYPE + " number");
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
@@ -41,6 +41,12 @@ public class ProductTypeTransitCumulativeSeriesSales extends ProductTypeTransitC
     private static final long serialVersionUID = 1L;
     
     private List<Double> series;
+    // DAY, WEEK, MONTH or QUARTER, the period each point of the series sums
+    private String seriesResolution;
+    // epoch day of the first day summed by each point and the number of days it sums,
+    // the periods at either end of the range are cut short by the range
+    private List<Integer> seriesStart;
+    private List<Integer> seriesDays;
 
     public void setSeries(List<Double> series) {
         this.series = series;
@@ -49,5 +55,29 @@ public class ProductTypeTransitCumulativeSeriesSales extends ProductTypeTransitC
     public List<Double> getSeries() {
         return series;
     }
+
+    public String getSeriesResolution() {
+        return seriesResolution;
+    }
+
+    public void setSeriesResolution(String seriesResolution) {
+        this.seriesResolution = seriesResolution;
+    }
+
+    public List<Integer> getSeriesStart() {
+        return seriesStart;
+    }
+
+    public void setSeriesStart(List<Integer> seriesStart) {
+        this.seriesStart = seriesStart;
+    }
+
+    public List<Integer> getSeriesDays() {
+        return seriesDays;
+    }
+
+    public void setSeriesDays(List<Integer> seriesDays) {
+        this.seriesDays = seriesDays;
+    }
     
 }
@@ -32,6 +32,8 @@
 package com.javafx.experiments.dataapp.simulation;
 
 import com.javafx.experiments.dataapp.model.*;
+import com.javafx.experiments.dataapp.simulation.persistance.DailyTotalsWriter;
+import com.javafx.experiments.dataapp.simulation.persistance.DimensionCache;
 
 import javax.persistence.EntityManager;
 import javax.persistence.Parameter;
@@ -66,12 +68,22 @@ public class DailySalesGenerator {
             + "sol.product.productId";
     
     private static final String REMOVE_QUERY = "select so from SalesOrder so where so.date < :date1";
+
+    private static final String REMOVE_LIVE_QUERY = "delete from LiveSalesList l where l.date < :date1";
         
     private TypedQuery<Object[]> baseQuery;
     private TypedQuery<SalesOrder> removeQuery;
+    private final DailyTotalsWriter dailyTotalsWriter;
+    private final DimensionCache dimensions;
         
     public DailySalesGenerator(EntityManager em){
+        this(em, new DimensionCache(em));
+    }
+
+    public DailySalesGenerator(EntityManager em, DimensionCache dimensions){
         this.em = em;        
+        this.dimensions = dimensions;
+        this.dailyTotalsWriter = new DailyTotalsWriter(em);
     }
     
      /**
@@ -94,11 +106,11 @@ public class DailySalesGenerator {
         List<Object[]> results = baseQuery.getResultList();
         for (Object[] result : results){
             DailySales hourlySales = new DailySales();
-            Region region = em.find(Region.class, result[0]);
+            Region region = result[0] == null ? null : dimensions.getRegion((Integer) result[0]);
             hourlySales.setRegion(region);
             //hourlySales.setEmployeeId(null);
             //hourlySales.setDealerId(null);
-            Product product = em.find(Product.class, result[1]);
+            Product product = result[1] == null ? null : dimensions.getProduct((Integer) result[1]);
             hourlySales.setProduct(product);
             hourlySales.setStateProvCd((String)result[2]);
             hourlySales.setQuantity(((Long)result[3]).intValue());
@@ -109,11 +121,17 @@ public class DailySalesGenerator {
             cal.set(Calendar.DAY_OF_MONTH, (Integer) result[6]);
             hourlySales.setDate(cal.getTime());
             em.persist(hourlySales);
+            dailyTotalsWriter.add(hourlySales);
         }
+        //the daily sales ids are needed for the totals
+        em.flush();
+        dailyTotalsWriter.write();
         removeStaleEntries(date);
     }
     
     private void removeStaleEntries(Date date){
+        // the LIVE_SALES rows of the orders go with them
+        em.createQuery(REMOVE_LIVE_QUERY).setParameter("date1", date).executeUpdate();
         Parameter<Date> p1 = removeQuery.getParameter("date1", Date.class);
         removeQuery.setParameter(p1, date);
         for (SalesOrder so : removeQuery.getResultList()){
@@ -32,6 +32,7 @@
 package com.javafx.experiments.dataapp.simulation;
 
 import com.javafx.experiments.dataapp.model.*;
+import com.javafx.experiments.dataapp.simulation.persistance.DimensionCache;
 
 import javax.persistence.EntityManager;
 import javax.persistence.EntityTransaction;
@@ -65,6 +66,8 @@ public class SalesSimulator {
     private double usUtilityPct = .2442;
     private double usPremiumTruckPct = .0196;
     private double usMedHeavyTruckPct = .0042;
+    // running sums of the pcts above, searched by pickUSProduct, rebuilt whenever they change
+    private final double[] usProductTypeCumulative = new double[US_PRODUCTS.length];
 
     //car ids
     public static final List<Integer> US_SMALL_CARS = Arrays.asList(7, 8, 9, 10, 11, 12, 13);
@@ -80,8 +83,15 @@ public class SalesSimulator {
 
     public static final List<Integer> US_REGIONS = Arrays.asList(1, 2, 3, 4, 5, 6, 7);
 
+    // the car ids per type, in the order of usProductTypeCumulative
+    private static final int[][] US_PRODUCTS = toArrays(US_SMALL_CARS, US_MEDIUM_CARS, US_LARGE_CARS, US_PREMIUM_CARS,
+            US_COMPACT_TRUCKS, US_BUS_VANS, US_FULL_SIZE_TRUCKS, US_UTILIYS, US_PREMIUM_TRUCKS, US_MED_HEAVY_TRUCKS);
+
     public static final double US_SALE_PCT = .55;
 
+    // system property holding the seed of the simulation, runs with the same seed generate the same sales
+    public static final String SEED_PROPERTY = "dataapp.seed";
+
     public static final int FLEET_SALES_SIZE = 30;
     public static final double FLEET_SALES_PCT = (1.0 / 70.0);
 
@@ -91,6 +101,12 @@ public class SalesSimulator {
     public static final int TIME_BETWEEN_SALES = 6500;
 
     private final EntityManager em;
+    private final DimensionCache dimensions;
+    // LIVE_SALES rows created since the last flush, they get their orderLineId when the lines are inserted
+    private final List<SalesOrderLine> pendingLines = new ArrayList<>();
+    private final List<LiveSalesList> pendingSales = new ArrayList<>();
+    // LIVE_SALES rows written by the last run(), not committed yet
+    private final List<LiveSalesList> writtenSales = new ArrayList<>();
 
     private final List<Region> usRegions;
     private final List<Region> intlRegions;
@@ -98,8 +114,28 @@ public class SalesSimulator {
     private final Random thisRandom;
 
     public SalesSimulator(EntityManager em) {
+        this(em, new DimensionCache(em));
+    }
+
+    public SalesSimulator(EntityManager em, DimensionCache dimensions) {
+        this(em, dimensions, new SplitMix64Random());
+    }
+
+    /**
+     * @param seed seed of the random stream, the same seed generates the same sales
+     */
+    public SalesSimulator(EntityManager em, long seed) {
+        this(em, new DimensionCache(em), new SplitMix64Random(seed));
+    }
+
+    /**
+     * @param random the random stream every sale is drawn from, only used by this simulator
+     */
+    public SalesSimulator(EntityManager em, DimensionCache dimensions, SplitMix64Random random) {
         this.em = em;
-        thisRandom = new Random();
+        this.dimensions = dimensions;
+        thisRandom = random;
+        buildProductTypeCumulative();
 
         listOfZips = em.createNamedQuery("ZipCityInfo.findAll", ZipCityInfo.class).getResultList();
 
@@ -124,8 +160,11 @@ public class SalesSimulator {
      * Generate a single sales record for the current date and time
      */
     public void run() {
+        // whatever a failed run left behind was rolled back
+        writtenSales.clear();
         generate(new Date());
         em.flush();
+        writeLiveSales();
     }
 
     /**
@@ -176,6 +215,8 @@ public class SalesSimulator {
                 //this flush works specifically with the InitialLoadEntityManagerProxy to ensure
                 // that the data is loaded into DailySales in the correct order.
                 em.flush();
+                // the proxy only keeps the order lines, there are no live sales to write
+                discardLiveSales();
                 et.commit();
                 em.clear();
                 et.begin();
@@ -187,6 +228,7 @@ public class SalesSimulator {
             generate(new Date(d.longValue()));
         }
         em.flush();
+        discardLiveSales();
         et.commit();
     }
 
@@ -226,6 +268,18 @@ public class SalesSimulator {
         usUtilityPct /= sum;
         usPremiumTruckPct /= sum;
         usMedHeavyTruckPct /= sum;
+        buildProductTypeCumulative();
+    }
+
+    private void buildProductTypeCumulative() {
+        double[] pcts = {usSmallCarPct, usMediumCarPct, usLargeCarPct, usPremiumCarPct, usCompactTruckPct,
+                usBusVanPct, usFullsizePct, usUtilityPct, usPremiumTruckPct, usMedHeavyTruckPct};
+        double sum = 0.0;
+        for (int i = 0; i < pcts.length; i++) {
+            // the noise can push a pct below zero, that type is then not sold that day
+            sum += Math.max(0.0, pcts[i]);
+            usProductTypeCumulative[i] = sum;
+        }
     }
 
     private static double salesRateAdjustment(long time, Random random) {
@@ -246,7 +300,7 @@ public class SalesSimulator {
     }
 
     private void generate(Date date) {
-        Random random = new Random();
+        Random random = thisRandom;
         if (random.nextDouble() < US_SALE_PCT) {
             if (random.nextDouble() < FLEET_SALES_PCT) {
                 doFleetSale(random, date);
@@ -260,7 +314,8 @@ public class SalesSimulator {
         //TODO: dealer, employee 
         SalesOrder order = new SalesOrder();
         order.setDate(date);
-        Customer c = generateCustomer(random);
+        ZipCityInfo zip = listOfZips.get(random.nextInt(listOfZips.size()));
+        Customer c = generateCustomer(zip);
         order.setCustomer(c);
         order.setChannel("FLEET");
 
@@ -283,29 +338,28 @@ public class SalesSimulator {
             char discountRate = pickDiscountRateForFleet(random);
             SalesOrderLine orderLine = new SalesOrderLine();
             orderLine.setOrder(order);
-            orderLine.setDiscountRate(em.find(DiscountRate.class, discountRate));
-            orderLine.setProduct(em.find(Product.class, productId));
+            orderLine.setDiscountRate(dimensions.getDiscountRate(discountRate));
+            orderLine.setProduct(dimensions.getProduct(productId));
             orderLine.setQuantity(quantity);
             em.persist(orderLine);
+            addLiveSale(order, orderLine, zip);
 
             salesToGo -= quantity;
         }
     }
 
-    private Customer generateCustomer(Random random) {
+    private Customer generateCustomer(ZipCityInfo zip) {
         Customer customer = new Customer();
-        customer.setAddress(generateAddress(random));
+        customer.setAddress(generateAddress(zip));
 
         em.persist(customer);
 
         return customer;
     }
 
-    private Address generateAddress(Random random) {
+    private Address generateAddress(ZipCityInfo randomZip) {
         //TODO: street addresses
         //we are dealing with zip code prefixes here
-        int i = random.nextInt(listOfZips.size());
-        ZipCityInfo randomZip = listOfZips.get(i);
         Address address = new Address();
         address.setCity(randomZip.getCity());
         address.setCountry("USA");
@@ -321,7 +375,8 @@ public class SalesSimulator {
         //TODO: dealer, employee customer
         SalesOrder order = new SalesOrder();
         order.setDate(date);
-        Customer c = generateCustomer(random);
+        ZipCityInfo zip = listOfZips.get(random.nextInt(listOfZips.size()));
+        Customer c = generateCustomer(zip);
         order.setCustomer(c);
         try {
             Region orderRegion = getRegion(c.getAddress());
@@ -336,10 +391,69 @@ public class SalesSimulator {
         int productId = pickUSProduct(random);
         SalesOrderLine orderLine = new SalesOrderLine();
         orderLine.setOrder(order);
-        orderLine.setDiscountRate(em.find(DiscountRate.class, 'N'));
-        orderLine.setProduct(em.find(Product.class, productId));
+        orderLine.setDiscountRate(dimensions.getDiscountRate('N'));
+        orderLine.setProduct(dimensions.getProduct(productId));
         orderLine.setQuantity(1);
         em.persist(orderLine);
+        addLiveSale(order, orderLine, zip);
+    }
+
+    /**
+     * The LIVE_SALES rows written by the last run(), oldest first. They are
+     * only real once the caller's transaction commits, so only then should
+     * they be shown, e.g. added to a LiveSalesBuffer.
+     */
+    public List<LiveSalesList> takeWrittenSales() {
+        List<LiveSalesList> sales = new ArrayList<>(writtenSales);
+        writtenSales.clear();
+        return sales;
+    }
+
+    /**
+     * Build the LIVE_SALES row of a new order line, it is written once the
+     * line has been inserted and has its id
+     */
+    private void addLiveSale(SalesOrder order, SalesOrderLine orderLine, ZipCityInfo zip) {
+        // the live tab only lists the sales of US regions
+        if (order.getRegion() == null || order.getRegion().getInternational() != 0) return;
+        Product product = orderLine.getProduct();
+        LiveSalesList sale = new LiveSalesList();
+        sale.setProduct(product.getName());
+        if (product.getProductType() != null) {
+            sale.setType(product.getProductType().getClass1());
+            sale.setSubType(product.getProductType().getSubclass());
+            sale.setProductTypeId(product.getProductType().getProductTypeId());
+        }
+        sale.setPrice(product.getPrice());
+        sale.setRegion(order.getRegion().getName());
+        sale.setChannel(order.getChannel());
+        sale.setQuantity(orderLine.getQuantity());
+        sale.setCity(zip.getCity());
+        sale.setState(zip.getState());
+        sale.setLatitude(zip.getLatitude());
+        sale.setLongitude(zip.getLongitude());
+        sale.setDate(order.getDate());
+        pendingLines.add(orderLine);
+        pendingSales.add(sale);
+    }
+
+    /**
+     * Persist the LIVE_SALES rows of the lines just flushed, in the same
+     * transaction
+     */
+    private void writeLiveSales() {
+        for (int i = 0; i < pendingSales.size(); i++) {
+            LiveSalesList sale = pendingSales.get(i);
+            sale.setOrderLineId(pendingLines.get(i).getOrderLineId());
+            em.persist(sale);
+            writtenSales.add(sale);
+        }
+        discardLiveSales();
+    }
+
+    private void discardLiveSales() {
+        pendingLines.clear();
+        pendingSales.clear();
     }
 
     private Region getRegion(Address address) {
@@ -358,54 +472,34 @@ public class SalesSimulator {
 
     private int pickUSProduct(Random random) {
         //nextDouble produces a value from 0 to 1.
-        //all the Pcts should sum to one, it selects the type of car
+        //it selects the type of car by the running sums of the pcts
         //and then randomly selects one of the associated autos
-        double pick = random.nextDouble();
-        int i = 0;
-        if (pick <= usSmallCarPct) {
-            //small car
-            i = US_SMALL_CARS.get(random.nextInt(US_SMALL_CARS.size()));
-        } else if ((pick > usSmallCarPct) && (pick <= usSmallCarPct + usMediumCarPct)) {
-            //medium car
-            i = US_MEDIUM_CARS.get(random.nextInt(US_MEDIUM_CARS.size()));
-        } else if ((pick > usSmallCarPct + usMediumCarPct) && (pick <= usSmallCarPct + usMediumCarPct + usLargeCarPct)) {
-            //large car
-            i = US_LARGE_CARS.get(random.nextInt(US_LARGE_CARS.size()));
-        } else if ((pick > usSmallCarPct + usMediumCarPct + usLargeCarPct) &&
-                (pick <= usSmallCarPct + usMediumCarPct + usLargeCarPct + usPremiumCarPct)) {
-            //premium car
-            i = US_PREMIUM_CARS.get(random.nextInt(US_PREMIUM_CARS.size()));
-        } else if ((pick > usSmallCarPct + usMediumCarPct + usLargeCarPct + usPremiumCarPct) &&
-                (pick <= usSmallCarPct + usMediumCarPct + usLargeCarPct + usPremiumCarPct + usCompactTruckPct)) {
-            //compact truck
-            i = US_COMPACT_TRUCKS.get(random.nextInt(US_COMPACT_TRUCKS.size()));
-        } else if ((pick > usSmallCarPct + usMediumCarPct + usLargeCarPct + usPremiumCarPct + usCompactTruckPct) &&
-                (pick <= usSmallCarPct + usMediumCarPct + usLargeCarPct + usPremiumCarPct + usCompactTruckPct + usBusVanPct)) {
-            //bus van
-            i = US_BUS_VANS.get(random.nextInt(US_BUS_VANS.size()));
-        } else if ((pick > usSmallCarPct + usMediumCarPct + usLargeCarPct + usPremiumCarPct + usCompactTruckPct + usBusVanPct) &&
-                (pick <= usSmallCarPct + usMediumCarPct + usLargeCarPct + usPremiumCarPct + usCompactTruckPct + usBusVanPct + usFullsizePct)) {
-            //full size truck
-            i = US_FULL_SIZE_TRUCKS.get(random.nextInt(US_FULL_SIZE_TRUCKS.size()));
-        } else if ((pick > usSmallCarPct + usMediumCarPct + usLargeCarPct + usPremiumCarPct + usCompactTruckPct + usBusVanPct + usFullsizePct) &&
-                (pick <= usSmallCarPct + usMediumCarPct + usLargeCarPct + usPremiumCarPct + usCompactTruckPct + usBusVanPct + usFullsizePct + usUtilityPct)) {
-            //utility
-            i = US_UTILIYS.get(random.nextInt(US_UTILIYS.size()));
-        } else if ((pick > usSmallCarPct + usMediumCarPct + usLargeCarPct + usPremiumCarPct + usCompactTruckPct + usBusVanPct + usFullsizePct + usUtilityPct) &&
-                (pick <= usSmallCarPct + usMediumCarPct + usLargeCarPct + usPremiumCarPct + usCompactTruckPct + usBusVanPct + usFullsizePct + usUtilityPct + usPremiumTruckPct)) {
-            i = US_PREMIUM_TRUCKS.get(random.nextInt(US_PREMIUM_TRUCKS.size()));
-            //premium truck
-        } else if ((pick > usSmallCarPct + usMediumCarPct + usLargeCarPct + usPremiumCarPct + usCompactTruckPct + usBusVanPct + usFullsizePct + usUtilityPct + usPremiumTruckPct) &&
-                (pick <= usSmallCarPct + usMediumCarPct + usLargeCarPct + usPremiumCarPct + usCompactTruckPct + usBusVanPct + usFullsizePct + usUtilityPct + usPremiumTruckPct + usMedHeavyTruckPct)) {
-            //heavy truck
-            i = US_MED_HEAVY_TRUCKS.get(random.nextInt(US_MED_HEAVY_TRUCKS.size()));
-        }
-        if (i == 0) {
-            System.out.println(pick);
-            System.out.println("Sum of pick percentages did not go to 1!");
+        double[] cumulative = usProductTypeCumulative;
+        double pick = random.nextDouble() * cumulative[cumulative.length - 1];
+        // first type whose running sum is past the pick
+        int low = 0;
+        int high = cumulative.length - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (cumulative[mid] > pick) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
         }
+        int[] products = US_PRODUCTS[low];
+        return products[random.nextInt(products.length)];
+    }
 
-        return i;
+    private static int[][] toArrays(List<?>... lists) {
+        int[][] arrays = new int[lists.length][];
+        for (int i = 0; i < lists.length; i++) {
+            arrays[i] = new int[lists[i].size()];
+            for (int j = 0; j < arrays[i].length; j++) {
+                arrays[i][j] = (Integer) lists[i].get(j);
+            }
+        }
+        return arrays;
     }
 
     private char pickDiscountRateForFleet(Random random) {
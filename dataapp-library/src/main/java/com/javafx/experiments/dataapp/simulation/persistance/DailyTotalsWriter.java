@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2008, 2011 Oracle and/or its affiliates.
+ * All rights reserved. Use is subject to license terms.
+ *
+ * This file is available and licensed under the following license:
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  - Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *  - Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in
+ *    the documentation and/or other materials provided with the distribution.
+ *  - Neither the name of Oracle Corporation nor the names of its
+ *    contributors may be used to endorse or promote products derived
+ *    from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.javafx.experiments.dataapp.simulation.persistance;
+
+import com.javafx.experiments.dataapp.model.DailySales;
+import com.javafx.experiments.dataapp.model.DailyTotals;
+import com.javafx.experiments.dataapp.model.Product;
+import com.javafx.experiments.dataapp.model.Region;
+
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Rolls DailySales rows up into the DAILY_TOTALS table. Rows are collected with
+ * add() as they are persisted and written out with write() once the entity
+ * manager has been flushed and the rows have their ids, merging into any totals
+ * already stored for the same date and region. Like the query the rollup
+ * replaced, which inner joined the product, rows without a product are left out
+ * and rows without a region are totalled under a null region.
+ */
+public class DailyTotalsWriter {
+    private final EntityManager em;
+    private final List<DailySales> pending = new ArrayList<>();
+
+    public DailyTotalsWriter(EntityManager em) {
+        this.em = em;
+    }
+
+    public void add(DailySales dailySales) {
+        pending.add(dailySales);
+    }
+
+    public void write() {
+        Map<Date, Map<Region, DailyTotals>> totals = new HashMap<>();
+        for (DailySales ds : pending) {
+            if (ds.getProduct() == null || ds.getDailySalesId() == null) continue;
+            Map<Region, DailyTotals> byRegion = totals.get(ds.getDate());
+            if (byRegion == null) {
+                byRegion = new HashMap<>();
+                totals.put(ds.getDate(), byRegion);
+            }
+            DailyTotals t = byRegion.get(ds.getRegion());
+            if (t == null) {
+                t = new DailyTotals();
+                t.setDate(ds.getDate());
+                t.setRegion(ds.getRegion());
+                t.setMinDailySalesId(ds.getDailySalesId());
+                t.setMaxDailySalesId(ds.getDailySalesId());
+                t.setCost(0d);
+                t.setSales(0d);
+                byRegion.put(ds.getRegion(), t);
+            }
+            Product p = ds.getProduct();
+            int quantity = ds.getQuantity() == null ? 0 : ds.getQuantity();
+            t.setMinDailySalesId(Math.min(t.getMinDailySalesId(), ds.getDailySalesId()));
+            t.setMaxDailySalesId(Math.max(t.getMaxDailySalesId(), ds.getDailySalesId()));
+            t.setCost(t.getCost() + quantity * (p.getCost() == null ? 0 : p.getCost()));
+            t.setSales(t.getSales() + quantity * (p.getPrice() == null ? 0 : p.getPrice()));
+        }
+        pending.clear();
+
+        TypedQuery<DailyTotals> existingQuery = em.createNamedQuery("DailyTotals.findByDateAndRegion", DailyTotals.class);
+        TypedQuery<DailyTotals> existingWithoutRegionQuery = em.createNamedQuery("DailyTotals.findByDateWithoutRegion", DailyTotals.class);
+        for (Map<Region, DailyTotals> byRegion : totals.values()) {
+            for (DailyTotals t : byRegion.values()) {
+                List<DailyTotals> existing;
+                if (t.getRegion() == null) {
+                    existingWithoutRegionQuery.setParameter("date", t.getDate());
+                    existing = existingWithoutRegionQuery.getResultList();
+                } else {
+                    existingQuery.setParameter("date", t.getDate());
+                    existingQuery.setParameter("region", t.getRegion());
+                    existing = existingQuery.getResultList();
+                }
+                if (existing.isEmpty()) {
+                    em.persist(t);
+                } else {
+                    DailyTotals e = existing.get(0);
+                    e.setMinDailySalesId(Math.min(e.getMinDailySalesId(), t.getMinDailySalesId()));
+                    e.setMaxDailySalesId(Math.max(e.getMaxDailySalesId(), t.getMaxDailySalesId()));
+                    e.setCost(e.getCost() + t.getCost());
+                    e.setSales(e.getSales() + t.getSales());
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright (c) 2008, 2011 Oracle and/or its affiliates.
+ * All rights reserved. Use is subject to license terms.
+ *
+ * This file is available and licensed under the following license:
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  - Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *  - Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in
+ *    the documentation and/or other materials provided with the distribution.
+ *  - Neither the name of Oracle Corporation nor the names of its
+ *    contributors may be used to endorse or promote products derived
+ *    from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.javafx.experiments.dataapp.simulation.persistance;
+
+import com.javafx.experiments.dataapp.model.DiscountRate;
+import com.javafx.experiments.dataapp.model.Product;
+import com.javafx.experiments.dataapp.model.ProductType;
+import com.javafx.experiments.dataapp.model.Region;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+
+/**
+ * Read mostly cache of the dimension tables (ProductType, Product, Region and
+ * DiscountRate) held in arrays indexed by id, so looking a dimension up is an
+ * array access instead of a trip through the persistence context.
+ * <p/>
+ * The tables are loaded with refresh(), which is also called, at most once a
+ * minute, when a lookup asks for an id past the highest one loaded so rows
+ * added after the load are picked up. The cached entities are
+ * detached and should only be used as references or for reading.
+ */
+public class DimensionCache {
+    private static final long MISS_REFRESH_INTERVAL = 60 * 1000;
+
+    private final EntityManager em;
+    private volatile Snapshot snapshot = new Snapshot();
+    private long lastMissRefresh;
+
+    public DimensionCache(EntityManager em) {
+        this.em = em;
+    }
+
+    /**
+     * Reload all the dimension tables
+     */
+    public synchronized void refresh() {
+        Snapshot s = new Snapshot();
+
+        List<Product> productList = em.createNamedQuery("Product.findAll", Product.class).getResultList();
+        int maxProductId = 0;
+        for (Product p : productList) {
+            maxProductId = Math.max(maxProductId, p.getProductId());
+        }
+        s.products = new Product[maxProductId + 1];
+        for (Product p : productList) {
+            s.products[p.getProductId()] = p;
+        }
+
+        List<ProductType> typeList = em.createNamedQuery("ProductType.findAll", ProductType.class).getResultList();
+        int maxTypeId = 0;
+        for (ProductType pt : typeList) {
+            maxTypeId = Math.max(maxTypeId, pt.getProductTypeId());
+        }
+        s.productTypes = new ProductType[maxTypeId + 1];
+        for (ProductType pt : typeList) {
+            s.productTypes[pt.getProductTypeId()] = pt;
+        }
+
+        List<Region> regionList = em.createNamedQuery("Region.findAll", Region.class).getResultList();
+        int maxRegionId = 0;
+        for (Region r : regionList) {
+            maxRegionId = Math.max(maxRegionId, r.getRegionId());
+        }
+        s.regions = new Region[maxRegionId + 1];
+        for (Region r : regionList) {
+            s.regions[r.getRegionId()] = r;
+        }
+
+        List<DiscountRate> rateList = em.createNamedQuery("DiscountRate.findAll", DiscountRate.class).getResultList();
+        char maxRate = 0;
+        for (DiscountRate dr : rateList) {
+            maxRate = (char) Math.max(maxRate, dr.getDiscountRate());
+        }
+        s.discountRates = new DiscountRate[maxRate + 1];
+        for (DiscountRate dr : rateList) {
+            s.discountRates[dr.getDiscountRate()] = dr;
+        }
+
+        s.version = snapshot.version + 1;
+        s.loadedAt = System.currentTimeMillis();
+        snapshot = s;
+    }
+
+    public Product getProduct(int productId) {
+        Snapshot s = snapshot;
+        if (productId < 0) {
+            return null;
+        }
+        if (productId >= s.products.length) {
+            s = refreshOnMiss(s);
+        }
+        return productId < s.products.length ? s.products[productId] : null;
+    }
+
+    public ProductType getProductType(int productTypeId) {
+        Snapshot s = snapshot;
+        if (productTypeId < 0) {
+            return null;
+        }
+        if (productTypeId >= s.productTypes.length) {
+            s = refreshOnMiss(s);
+        }
+        return productTypeId < s.productTypes.length ? s.productTypes[productTypeId] : null;
+    }
+
+    public Region getRegion(int regionId) {
+        Snapshot s = snapshot;
+        if (regionId < 0) {
+            return null;
+        }
+        if (regionId >= s.regions.length) {
+            s = refreshOnMiss(s);
+        }
+        return regionId < s.regions.length ? s.regions[regionId] : null;
+    }
+
+    public DiscountRate getDiscountRate(char discountRate) {
+        Snapshot s = snapshot;
+        if (discountRate >= s.discountRates.length) {
+            s = refreshOnMiss(s);
+        }
+        return discountRate < s.discountRates.length ? s.discountRates[discountRate] : null;
+    }
+
+    /**
+     * One more than the highest product id, for sizing arrays indexed by product id
+     */
+    public int getProductIdLimit() {
+        return snapshot.products.length;
+    }
+
+    public int getProductTypeIdLimit() {
+        return snapshot.productTypes.length;
+    }
+
+    public int getRegionIdLimit() {
+        return snapshot.regions.length;
+    }
+
+    /**
+     * Time of the last refresh, in milliseconds
+     */
+    public long getLoadedAt() {
+        return snapshot.loadedAt;
+    }
+
+    /**
+     * Incremented on every refresh
+     */
+    public int getVersion() {
+        return snapshot.version;
+    }
+
+    // only reload on a miss if nobody else has reloaded since the lookup started
+    private synchronized Snapshot refreshOnMiss(Snapshot seen) {
+        long now = System.currentTimeMillis();
+        if (snapshot == seen && now - lastMissRefresh > MISS_REFRESH_INTERVAL) {
+            lastMissRefresh = now;
+            refresh();
+        }
+        return snapshot;
+    }
+
+    private static class Snapshot {
+        Product[] products = new Product[0];
+        ProductType[] productTypes = new ProductType[0];
+        Region[] regions = new Region[0];
+        DiscountRate[] discountRates = new DiscountRate[0];
+        int version;
+        long loadedAt;
+    }
+}
@@ -59,10 +59,14 @@ public class InitialLoadEntityManagerProxy implements EntityManager {
     //Accumulates daily sales to be persisted out to the database.
     private TreeMap<Date, HashMap<Product, HashMap<String, HashMap<Region, Integer>>>> dailySalesCounter;
 
+    //Rolls the persisted daily sales up into DailyTotals once their ids are known.
+    private final DailyTotalsWriter dailyTotalsWriter;
+
     public InitialLoadEntityManagerProxy(EntityManager em) {
         this.em = em;
 
         this.dailySalesCounter = new TreeMap<>();
+        this.dailyTotalsWriter = new DailyTotalsWriter(em);
     }
 
     @Override
@@ -115,6 +119,7 @@ public class InitialLoadEntityManagerProxy implements EntityManager {
                         dailySales.setQuantity(dailySalesCounter.get(date).get(product).get(state).get(region));
                         dailySales.setDate(date);
                         em.persist(dailySales);
+                        dailyTotalsWriter.add(dailySales);
                     }
                 }
             }
@@ -129,6 +134,7 @@ public class InitialLoadEntityManagerProxy implements EntityManager {
     public void flush() {
         persistBlackMagic();
         em.flush();
+        dailyTotalsWriter.write();
         dailySalesCounter = new TreeMap<>();
     }
 
@@ -0,0 +1,171 @@
+/*
+ * Copyright (c) 2008, 2011 Oracle and/or its affiliates.
+ * All rights reserved. Use is subject to license terms.
+ *
+ * This file is available and licensed under the following license:
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  - Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *  - Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in
+ *    the documentation and/or other materials provided with the distribution.
+ *  - Neither the name of Oracle Corporation nor the names of its
+ *    contributors may be used to endorse or promote products derived
+ *    from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.javafx.experiments.dataapp.simulation.persistance;
+
+import com.javafx.experiments.dataapp.model.LiveSalesList;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Fixed size ring of the most recent live sales, the same denormalized rows as
+ * the LIVE_SALES table, so the live tab can be served without querying the
+ * database. Sales are added once the transaction writing them has committed, the
+ * oldest sales are overwritten once the ring is full.
+ * <p/>
+ * Readers take no lock: every slot remembers the sequence number it was
+ * written for, so a reader walking back from the head can tell a slot that
+ * is still being written from one that has already been overwritten.
+ * <p/>
+ * Every slot also links back to the previous sale of the same region, of the
+ * same product type and of the same region and product type, so a filtered
+ * query only visits the sales it returns instead of the whole ring.
+ */
+public class LiveSalesBuffer {
+    // the chain a filtered query follows
+    private static final int REGION = 0;
+    private static final int TYPE = 1;
+    private static final int REGION_TYPE = 2;
+
+    private final AtomicReferenceArray<Slot> slots;
+    private final int mask;
+    // sequence number of the next sale to be added
+    private final AtomicLong head = new AtomicLong();
+    // sequence number of the latest sale of every region, product type and region and product type pair
+    private final ConcurrentMap<String, Long> regionHeads = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Integer, Long> typeHeads = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Long> regionTypeHeads = new ConcurrentHashMap<>();
+
+    /**
+     * @param capacity number of sales kept, rounded up to a power of two
+     */
+    public LiveSalesBuffer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+        slots = new AtomicReferenceArray<>(size);
+        mask = size - 1;
+    }
+
+    public int getCapacity() {
+        return slots.length();
+    }
+
+    /**
+     * Add a sale, sales must be added in orderLineId order
+     */
+    public synchronized void add(LiveSalesList sale) {
+        long seq = head.getAndIncrement();
+        long prevRegion = sale.getRegion() == null ? -1 : previous(regionHeads.get(sale.getRegion()));
+        long prevType = sale.getProductTypeId() == null ? -1 : previous(typeHeads.get(sale.getProductTypeId()));
+        String regionType = sale.getRegion() == null || sale.getProductTypeId() == null
+                ? null : regionTypeKey(sale.getRegion(), sale.getProductTypeId());
+        long prevRegionType = regionType == null ? -1 : previous(regionTypeHeads.get(regionType));
+        slots.set((int) (seq & mask), new Slot(seq, sale, prevRegion, prevType, prevRegionType));
+        // the heads only move once the slot is written, so a chain never leads to an empty slot
+        if (sale.getRegion() != null) regionHeads.put(sale.getRegion(), seq);
+        if (sale.getProductTypeId() != null) typeHeads.put(sale.getProductTypeId(), seq);
+        if (regionType != null) regionTypeHeads.put(regionType, seq);
+    }
+
+    private static String regionTypeKey(String region, int productTypeId) {
+        return productTypeId + "|" + region;
+    }
+
+    private static long previous(Long seq) {
+        return seq == null ? -1 : seq;
+    }
+
+    /**
+     * orderLineId of the latest sale or -1 when there are none
+     */
+    public int getLastOrderLineId() {
+        List<LiveSalesList> last = findRecent(null, -1, -1, 1);
+        return last.isEmpty() ? -1 : last.get(0).getOrderLineId();
+    }
+
+    /**
+     * The latest sales after orderLineId matching the filters, newest first
+     *
+     * @param region region name or null for all regions
+     * @param productTypeId product type or -1 for all types
+     * @param orderLineId only sales after this one, -1 for all
+     * @param max most sales returned
+     */
+    public List<LiveSalesList> findRecent(String region, int productTypeId, int orderLineId, int max) {
+        List<LiveSalesList> result = new ArrayList<>();
+        if (productTypeId > 0 || region != null) {
+            // every sale on the chain matches both filters, so only the sales returned are visited
+            int chain = productTypeId <= 0 ? REGION : region == null ? TYPE : REGION_TYPE;
+            long seq = previous(chain == REGION ? regionHeads.get(region)
+                    : chain == TYPE ? typeHeads.get(productTypeId)
+                    : regionTypeHeads.get(regionTypeKey(region, productTypeId)));
+            while (seq >= 0 && result.size() < max) {
+                Slot slot = slots.get((int) (seq & mask));
+                if (slot == null || slot.seq != seq) break; // overwritten, everything older is gone too
+                if (slot.sale.getOrderLineId() <= orderLineId) break;
+                result.add(slot.sale);
+                seq = chain == REGION ? slot.prevRegion : chain == TYPE ? slot.prevType : slot.prevRegionType;
+            }
+            return result;
+        }
+        long end = head.get();
+        for (long seq = end - 1; seq >= 0 && seq >= end - slots.length() && result.size() < max; seq--) {
+            Slot slot = slots.get((int) (seq & mask));
+            if (slot == null || slot.seq < seq) continue; // claimed but not written yet
+            if (slot.seq > seq) break; // overwritten, everything older is gone too
+            LiveSalesList sale = slot.sale;
+            if (sale.getOrderLineId() <= orderLineId) break;
+            result.add(sale);
+        }
+        return result;
+    }
+
+    private static final class Slot {
+        final long seq;
+        final LiveSalesList sale;
+        // sequence numbers of the previous sale of the same region, product type and both, -1 for none
+        final long prevRegion;
+        final long prevType;
+        final long prevRegionType;
+
+        Slot(long seq, LiveSalesList sale, long prevRegion, long prevType, long prevRegionType) {
+            this.seq = seq;
+            this.sale = sale;
+            this.prevRegion = prevRegion;
+            this.prevType = prevType;
+            this.prevRegionType = prevRegionType;
+        }
+    }
+}
@@ -33,6 +33,7 @@ package com.javafx.experiments;
 
 import com.javafx.experiments.dataapp.model.*;
 import com.javafx.experiments.dataapp.simulation.SalesSimulator;
+import com.javafx.experiments.dataapp.simulation.SplitMix64Random;
 import com.javafx.experiments.dataapp.simulation.persistance.InitialLoadEntityManagerProxy;
 
 import javax.persistence.EntityManager;
@@ -61,7 +62,10 @@ public class DataAppLoader {
         et.commit();
 
         EntityManager specialEntityManager = new InitialLoadEntityManagerProxy(entityManager);
-        SalesSimulator simulator = new SalesSimulator(specialEntityManager);
+        // the seed comes from the first argument or -Ddataapp.seed, with the same seed the same sales are generated
+        long seed = args.length > 0 ? Long.parseLong(args[0]) : Long.getLong(SalesSimulator.SEED_PROPERTY, new SplitMix64Random().nextLong());
+        System.out.println("Simulation seed: " + seed);
+        SalesSimulator simulator = new SalesSimulator(specialEntityManager, seed);
         Calendar cal = Calendar.getInstance();
         int year = cal.get(Calendar.YEAR);
         cal.clear();
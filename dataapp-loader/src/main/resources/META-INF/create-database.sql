@@ -32,11 +32,19 @@ ALTER TABLE APP.SALES_ORDER_LINE ADD FOREIGN KEY (DISCOUNT_RATE) REFERENCES APP.
 ALTER TABLE APP.SALES_ORDER_LINE ADD FOREIGN KEY (PRODUCT_ID) REFERENCES APP.PRODUCT (PRODUCT_ID)
 ALTER TABLE APP.SALES_ORDER_LINE ADD FOREIGN KEY (ORDER_ID) REFERENCES APP.SALES_ORDER (ORDER_ID)
 CREATE VIEW APP.FULL_PRODUCT_LISTING AS SELECT P.PRODUCT_ID, P.NAME, PT.CLASS, PT.SUBCLASS, P.LENGTH, P.WIDTH, P.HEIGHT, P.COST, P.PRICE, P.MODEL_YEAR, E.CYLINDERS, E.LITRE, E.INLINE, E.VEE, E.HYBRID, E.SUPERCHARGE, E.TURBOCHARGE, T.TYPE, T.GEARS FROM APP.PRODUCT AS P INNER JOIN APP.ENGINE E on E.ENGINE_ID = P.ENGINE_ID INNER JOIN APP.TRANSMISSION T on T.TRANSMISSION_ID = P.TRANSMISSION_ID INNER JOIN APP.PRODUCT_TYPE PT on P.PRODUCT_TYPE_ID = PT.PRODUCT_TYPE_ID ORDER BY PRODUCT_ID
-CREATE VIEW APP.LIVE_SALES_LIST AS SELECT SOL.ORDER_LINE_ID, P.NAME AS PRODUCT, PT.CLASS AS TYPE, PT.SUBCLASS AS SUBTYPE, P.PRICE AS PRICE, R.NAME AS REGION, SO.CHANNEL AS CHANNEL, SOL.QUANTITY AS QUANTITY, D.NAME AS DEALER, E.LAST_NAME AS SALESMAN, A.CITY AS CITY, A.STATE_PROV_CD AS STATE, Z.LATITUDE, Z.LONGITUDE, SO.DATE, P.PRODUCT_TYPE_ID FROM APP.SALES_ORDER_LINE SOL LEFT OUTER JOIN APP.SALES_ORDER SO ON SO.ORDER_ID = SOL.ORDER_ID LEFT OUTER JOIN APP.REGION R ON R.REGION_ID = SO.REGION_ID LEFT OUTER JOIN APP.DEALER D ON SO.DEALER_ID = D.DEALER_ID LEFT OUTER JOIN APP.PRODUCT P ON P.PRODUCT_ID = SOL.PRODUCT_ID LEFT OUTER JOIN APP.PRODUCT_TYPE PT ON PT.PRODUCT_TYPE_ID = P.PRODUCT_TYPE_ID LEFT OUTER JOIN APP.EMPLOYEE E ON E.EMPLOYEE_ID = SO.EMPLOYEE_ID LEFT OUTER JOIN APP.CUSTOMER C ON C.CUSTOMER_ID = SO.CUSTOMER_ID LEFT OUTER JOIN APP.ADDRESS A ON A.ADDRESS_ID = C.ADDRESS_ID LEFT OUTER JOIN APP.ZIP_CITY_INFO Z ON Z.ZIP = CAST(A.POSTAL_CODE AS INTEGER) WHERE R.INTERNATIONAL = 0 ORDER BY DATE DESC
+CREATE TABLE APP.LIVE_SALES ( ORDER_LINE_ID INTEGER NOT NULL, PRODUCT VARCHAR(255), TYPE VARCHAR(255), SUBTYPE VARCHAR(255), PRICE DOUBLE, REGION VARCHAR(255), CHANNEL VARCHAR(255), QUANTITY INTEGER, DEALER VARCHAR(255), SALESMAN VARCHAR(255), CITY VARCHAR(64), STATE CHAR(2), LATITUDE DOUBLE, LONGITUDE DOUBLE, DATE TIMESTAMP, PRODUCT_TYPE_ID INTEGER, PRIMARY KEY (ORDER_LINE_ID) )
+CREATE INDEX LIVESALESORDERLINEIDX ON APP.LIVE_SALES(ORDER_LINE_ID DESC)
+CREATE INDEX LIVESALESREGIONIDX ON APP.LIVE_SALES(REGION, ORDER_LINE_ID DESC)
+CREATE INDEX LIVESALESTYPEIDX ON APP.LIVE_SALES(PRODUCT_TYPE_ID, ORDER_LINE_ID DESC)
+CREATE INDEX LIVESALESDATEIDX ON APP.LIVE_SALES(DATE)
 CREATE INDEX ZIPPREFIXSTARTIDX ON APP.REGION(START_ZONE)
 CREATE INDEX ZIPPREFIXENDIDX ON APP.REGION(END_ZONE)
-CREATE TABLE APP.DAILY_SALES ( DAILY_SALES_ID INTEGER NOT NULL GENERATED BY DEFAULT AS IDENTITY, REGION_ID INTEGER, PRODUCT_ID INTEGER, STATE_PROV_CD VARCHAR(2), QUANTITY INTEGER, DATE DATE, PRIMARY KEY(DAILY_SALES_ID) )
+CREATE TABLE APP.DAILY_SALES ( DAILY_SALES_ID INTEGER NOT NULL GENERATED BY DEFAULT AS IDENTITY, REGION_ID INTEGER, PRODUCT_ID INTEGER, PRODUCT_TYPE_ID INTEGER, STATE_PROV_CD VARCHAR(2), QUANTITY INTEGER, DATE DATE, PRIMARY KEY(DAILY_SALES_ID) )
 CREATE INDEX DAILYSALESSTATEIDX ON APP.DAILY_SALES(STATE_PROV_CD)
 CREATE INDEX DAILYDATEIDX ON APP.DAILY_SALES(DATE)
 ALTER TABLE APP.DAILY_SALES ADD FOREIGN KEY (PRODUCT_ID) REFERENCES APP.PRODUCT (PRODUCT_ID)
 ALTER TABLE APP.DAILY_SALES ADD FOREIGN KEY (REGION_ID) REFERENCES APP.REGION (REGION_ID)
+ALTER TABLE APP.DAILY_SALES ADD FOREIGN KEY (PRODUCT_TYPE_ID) REFERENCES APP.PRODUCT_TYPE (PRODUCT_TYPE_ID)
+CREATE TABLE APP.DAILY_TOTALS ( DAILY_TOTALS_ID INTEGER NOT NULL GENERATED BY DEFAULT AS IDENTITY, DATE DATE NOT NULL, REGION_ID INTEGER, MIN_DAILY_SALES_ID INTEGER, MAX_DAILY_SALES_ID INTEGER, COST DOUBLE, SALES DOUBLE, PRIMARY KEY(DAILY_TOTALS_ID) )
+CREATE UNIQUE INDEX DAILYTOTALSDATEREGIONIDX ON APP.DAILY_TOTALS(DATE, REGION_ID)
+ALTER TABLE APP.DAILY_TOTALS ADD FOREIGN KEY (REGION_ID) REFERENCES APP.REGION (REGION_ID)
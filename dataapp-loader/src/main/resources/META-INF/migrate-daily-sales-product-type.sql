@@ -0,0 +1,6 @@
+-- Brings a DAILY_SALES table created before the PRODUCT_TYPE_ID column up to date.
+-- Run once with ij while connected to the dataapp database, new databases are
+-- created with the column by create-database.sql.
+ALTER TABLE APP.DAILY_SALES ADD COLUMN PRODUCT_TYPE_ID INTEGER;
+UPDATE APP.DAILY_SALES SET PRODUCT_TYPE_ID = (SELECT P.PRODUCT_TYPE_ID FROM APP.PRODUCT P WHERE P.PRODUCT_ID = APP.DAILY_SALES.PRODUCT_ID);
+ALTER TABLE APP.DAILY_SALES ADD FOREIGN KEY (PRODUCT_TYPE_ID) REFERENCES APP.PRODUCT_TYPE (PRODUCT_TYPE_ID);
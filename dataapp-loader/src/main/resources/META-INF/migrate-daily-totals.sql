@@ -0,0 +1,8 @@
+-- Adds the DAILY_TOTALS rollup to a database created before it existed, filled
+-- from DAILY_SALES. Run once with ij while connected to the dataapp database and
+-- with the server stopped, new databases are created with the table by
+-- create-database.sql.
+CREATE TABLE APP.DAILY_TOTALS ( DAILY_TOTALS_ID INTEGER NOT NULL GENERATED BY DEFAULT AS IDENTITY, DATE DATE NOT NULL, REGION_ID INTEGER, MIN_DAILY_SALES_ID INTEGER, MAX_DAILY_SALES_ID INTEGER, COST DOUBLE, SALES DOUBLE, PRIMARY KEY(DAILY_TOTALS_ID) );
+INSERT INTO APP.DAILY_TOTALS (DATE, REGION_ID, MIN_DAILY_SALES_ID, MAX_DAILY_SALES_ID, COST, SALES) SELECT DS.DATE, DS.REGION_ID, MIN(DS.DAILY_SALES_ID), MAX(DS.DAILY_SALES_ID), SUM(DS.QUANTITY * P.COST), SUM(DS.QUANTITY * P.PRICE) FROM APP.DAILY_SALES DS INNER JOIN APP.PRODUCT P ON P.PRODUCT_ID = DS.PRODUCT_ID GROUP BY DS.DATE, DS.REGION_ID;
+CREATE UNIQUE INDEX DAILYTOTALSDATEREGIONIDX ON APP.DAILY_TOTALS(DATE, REGION_ID);
+ALTER TABLE APP.DAILY_TOTALS ADD FOREIGN KEY (REGION_ID) REFERENCES APP.REGION (REGION_ID);
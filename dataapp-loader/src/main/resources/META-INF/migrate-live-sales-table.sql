@@ -0,0 +1,11 @@
+-- Replaces the LIVE_SALES_LIST view of a database created before the LIVE_SALES
+-- table with the table, filled from the view. Run once with ij while connected
+-- to the dataapp database and with the server stopped, new databases are created
+-- with the table by create-database.sql.
+CREATE TABLE APP.LIVE_SALES ( ORDER_LINE_ID INTEGER NOT NULL, PRODUCT VARCHAR(255), TYPE VARCHAR(255), SUBTYPE VARCHAR(255), PRICE DOUBLE, REGION VARCHAR(255), CHANNEL VARCHAR(255), QUANTITY INTEGER, DEALER VARCHAR(255), SALESMAN VARCHAR(255), CITY VARCHAR(64), STATE CHAR(2), LATITUDE DOUBLE, LONGITUDE DOUBLE, DATE TIMESTAMP, PRODUCT_TYPE_ID INTEGER, PRIMARY KEY (ORDER_LINE_ID) );
+INSERT INTO APP.LIVE_SALES (ORDER_LINE_ID, PRODUCT, TYPE, SUBTYPE, PRICE, REGION, CHANNEL, QUANTITY, DEALER, SALESMAN, CITY, STATE, LATITUDE, LONGITUDE, DATE, PRODUCT_TYPE_ID) SELECT ORDER_LINE_ID, PRODUCT, TYPE, SUBTYPE, PRICE, REGION, CHANNEL, QUANTITY, DEALER, SALESMAN, CITY, STATE, LATITUDE, LONGITUDE, DATE, PRODUCT_TYPE_ID FROM APP.LIVE_SALES_LIST;
+CREATE INDEX LIVESALESORDERLINEIDX ON APP.LIVE_SALES(ORDER_LINE_ID DESC);
+CREATE INDEX LIVESALESREGIONIDX ON APP.LIVE_SALES(REGION, ORDER_LINE_ID DESC);
+CREATE INDEX LIVESALESTYPEIDX ON APP.LIVE_SALES(PRODUCT_TYPE_ID, ORDER_LINE_ID DESC);
+CREATE INDEX LIVESALESDATEIDX ON APP.LIVE_SALES(DATE);
+DROP VIEW APP.LIVE_SALES_LIST;
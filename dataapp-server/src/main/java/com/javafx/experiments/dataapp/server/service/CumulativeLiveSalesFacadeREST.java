@@ -32,26 +32,33 @@
 package com.javafx.experiments.dataapp.server.service;
 
 
-import com.javafx.experiments.dataapp.model.ProductType;
-import com.javafx.experiments.dataapp.model.Region;
+import com.javafx.experiments.dataapp.model.transit.HistorySnapshot;
 import com.javafx.experiments.dataapp.model.transit.ProductTypeTransitCumulativeSeriesSales;
 import com.javafx.experiments.dataapp.model.transit.RegionTransitCumulativeSales;
 import com.javafx.experiments.dataapp.model.transit.StateTransitCumulativeSales;
 import com.javafx.experiments.dataapp.model.transit.TransitCumulativeSales;
 
+import javax.ejb.EJB;
 import javax.ejb.Stateless;
 import javax.persistence.EntityManager;
 import javax.persistence.Parameter;
 import javax.persistence.PersistenceContext;
 import javax.persistence.TypedQuery;
+import javax.ws.rs.DefaultValue;
 import javax.ws.rs.GET;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.GenericEntity;
+import javax.ws.rs.core.Request;
+import javax.ws.rs.core.Response;
 import java.util.ArrayList;
 import java.util.Date;
-import java.util.HashMap;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
 
 @Stateless
 @Path("com.javafx.experiments.dataapp.model.cumulativelivesales")
@@ -59,6 +66,15 @@ public class CumulativeLiveSalesFacadeREST {
     @PersistenceContext(unitName = "DataAppLibraryPU")
     private EntityManager em;
 
+    @EJB
+    private DailySalesCube cube;
+
+    @EJB
+    private DataVersionBean dataVersion;
+
+    @EJB
+    private AsyncTaskBean asyncTask;
+
 //    SQL    
 //    private static final String BASE_QUERY = "select sum(p.cost), sum(p.price) " +
 //            "from app.sales_order so "
@@ -79,96 +95,29 @@ public class CumulativeLiveSalesFacadeREST {
 //            + "group by FUNC('YEAR', hs.date), FUNC('MONTH', hs.date), FUNC('DAY', hs.date), hs.date "
 //            + "order by hs.date desc";
 
+    // read from the DAILY_TOTALS rollup written by DailySalesGenerator, one row per date and region
     private static final String BASE_RANGE_QUERY = 
             "select "
-                + "min(hs.dailySalesId), "
-                + "max(hs.dailySalesId), "
-                + "sum(hs.quantity * p.cost), "
-                + "sum(hs.quantity * p.price), "
-                + "hs.date "
-            + "from DailySales hs "
-            + "inner join hs.product p "
-            + "group by hs.date "
-            + "order by hs.date desc";
-    
-    private static final String TYPE_SUM_QUERY = 
-              "select sum(hs.quantity * p.cost), "
-                + "sum(hs.quantity * p.price), " 
-                + "sum(hs.quantity), "
-                + "pt.productTypeId "
-            + "from DailySales hs "
-            + "left join hs.product p "            
-            + "left join p.productType pt "    
-            + "where hs.dailySalesId >= :startId and hs.dailySalesId <= :endId "
-            + "group by pt.productTypeId";
-
-    private static final String TYPE_RANGE_QUERY = 
-            "select sum(hs.quantity), "
-                + "pt.productTypeId "
-            + "from DailySales hs "
-            + "left join hs.product p "
-            + "left join p.productType pt "
-            + "where hs.dailySalesId >= :startId and hs.dailySalesId <= :endId "
-            + "group by pt.productTypeId, hs.date ";
-
-    private static final String REGION_SUM_QUERY = 
-            "select sum(hs.quantity * p.cost), "
-                + "sum(hs.quantity * p.price), " 
-                + "sum(hs.quantity), "
-                + "r.regionId "
-            + "from DailySales hs "
-            + "left join hs.product p "
-            + "left join hs.region r "
-            + "where hs.dailySalesId >= :startId and hs.dailySalesId <= :endId "
-            + "group by r.regionId";
-    
+                + "min(dt.minDailySalesId), "
+                + "max(dt.maxDailySalesId), "
+                + "sum(dt.cost), "
+                + "sum(dt.sales), "
+                + "dt.date "
+            + "from DailyTotals dt "
+            + "group by dt.date "
+            + "order by dt.date desc";
     
     //begin region queries
     private static final String REGION_RANGE_QUERY = 
             "select "
-                + "min(hs.dailySalesId), "
-                + "max(hs.dailySalesId), "
-                + "sum(hs.quantity * p.cost), "
-                + "sum(hs.quantity * p.price), " 
-                + "hs.date "
-            + "from DailySales hs "
-            + "inner join hs.product p "
-            + "where hs.region.regionId = :regionId "
-            + "group by hs.date "
-            + "order by hs.date desc";
-    
-    private static final String REGION_TYPE_SUM_QUERY = 
-            "select sum(hs.quantity * p.cost), "
-                + "sum(hs.quantity * p.price), "
-                + "sum(hs.quantity), "
-                + "pt.productTypeId "
-            + "from DailySales hs "
-            + "left join hs.product p "            
-            + "left join p.productType pt "    
-            + "where hs.dailySalesId >= :startId and hs.dailySalesId <= :endId "
-            + "and hs.region.regionId = :regionId "
-            + "group by pt.productTypeId ";
-
-    private static final String REGION_TYPE_RANGE_QUERY = 
-            "select sum(hs.quantity), "
-                + "pt.productTypeId "
-            + "from DailySales hs "
-            + "left join hs.product p "
-            + "left join p.productType pt "
-            + "where hs.dailySalesId >= :startId and hs.dailySalesId <= :endId "
-            + "and hs.region.regionId = :regionId "
-            + "group by pt.productTypeId, hs.date ";
-
-    private static final String STATE_SUM_QUERY = 
-            "select sum(hs.quantity * p.cost), "
-                + "sum(hs.quantity * p.price), " 
-                + "sum(hs.quantity), "
-                + "hs.stateProvCd "
-            + "from DailySales hs "
-            + "left join hs.product p "
-            + "where hs.dailySalesId >= :startId and hs.dailySalesId <= :endId "
-            + "and hs.region.regionId = :regionId "
-            + "group by hs.stateProvCd";
+                + "dt.minDailySalesId, "
+                + "dt.maxDailySalesId, "
+                + "dt.cost, "
+                + "dt.sales, " 
+                + "dt.date "
+            + "from DailyTotals dt "
+            + "where dt.region.regionId = :regionId "
+            + "order by dt.date desc";
     
 //end region
     
@@ -178,6 +127,12 @@ public class CumulativeLiveSalesFacadeREST {
   
     @GET
     @Produces({"application/xml", "application/json"})
+    public Response findAll(@Context Request request) {
+        Response notModified = ConditionalGet.notModified(request, dataVersion.getHistoryTag(), dataVersion.getHistoryModified());
+        if (notModified != null) return notModified;
+        return ConditionalGet.ok(new GenericEntity<List<TransitCumulativeSales>>(findAll()) {}, dataVersion.getHistoryTag(), dataVersion.getHistoryModified());
+    }
+
     public List<TransitCumulativeSales> findAll() {       
         TypedQuery<Object[]> baseRangeQuery = em.createQuery(BASE_RANGE_QUERY, Object[].class);
         List<TransitCumulativeSales> result = new ArrayList<>();
@@ -194,9 +149,29 @@ public class CumulativeLiveSalesFacadeREST {
         return result;
     }
     
+    /**
+     * The daily timeline reduced to at most the given number of points, each
+     * covering the dailySalesId range of the days it stands for
+     */
+    @GET
+    @Path("/timeline/")
+    @Produces({"application/xml", "application/json"})
+    public Response findTimeline(@Context Request request, @QueryParam("points") @DefaultValue("500") int points) {
+        Response notModified = ConditionalGet.notModified(request, dataVersion.getHistoryTag(), dataVersion.getHistoryModified());
+        if (notModified != null) return notModified;
+        List<TransitCumulativeSales> result = TimelineDownsampler.downsample(findAll(), Math.max(3, points));
+        return ConditionalGet.ok(new GenericEntity<List<TransitCumulativeSales>>(result) {}, dataVersion.getHistoryTag(), dataVersion.getHistoryModified());
+    }
+
     @GET
     @Path("/recent/")
     @Produces({"application/xml", "application/json"})
+    public Response findRecent(@Context Request request) {
+        Response notModified = ConditionalGet.notModified(request, dataVersion.getHistoryTag(), dataVersion.getHistoryModified());
+        if (notModified != null) return notModified;
+        return ConditionalGet.ok(new GenericEntity<List<TransitCumulativeSales>>(findRecent()) {}, dataVersion.getHistoryTag(), dataVersion.getHistoryModified());
+    }
+
     public List<TransitCumulativeSales> findRecent() {     
         TypedQuery<Object[]> baseRangeQuery = em.createQuery(BASE_RANGE_QUERY, Object[].class);
         baseRangeQuery.setMaxResults(200);
@@ -220,62 +195,10 @@ public class CumulativeLiveSalesFacadeREST {
     @Produces({"application/xml", "application/json"})
     public List<ProductTypeTransitCumulativeSeriesSales> findTypeRange(@PathParam("from") String from, @PathParam("to") String to) {
         System.out.println("START findTypeRange (from="+from+" , to="+to+")");
-        long DIFF, TIME = System.currentTimeMillis(), START_TIME = System.currentTimeMillis();
-        TypedQuery<Object[]> q = getEntityManager().createQuery(TYPE_SUM_QUERY, Object[].class);
-      
-        DIFF = System.currentTimeMillis() - TIME;
-        System.out.println("    Q1 COMP TIME = "+DIFF+"ms");
-        TIME = System.currentTimeMillis();
-        
-        Parameter<Integer> p1 = q.getParameter("startId", Integer.class);
-        q.setParameter(p1, Integer.parseInt(from));
-        Parameter<Integer> p2 = q.getParameter("endId", Integer.class);
-        q.setParameter(p2, Integer.parseInt(to));
-        
-        List<ProductTypeTransitCumulativeSeriesSales> result = new ArrayList<>();
-        List<Object[]> resultList = q.getResultList();
-        
-        DIFF = System.currentTimeMillis() - TIME;
-        System.out.println("    Q1 TIME = "+DIFF+"ms");
-        TIME = System.currentTimeMillis();
-               
-        for (Object[] o : resultList) {
-            ProductTypeTransitCumulativeSeriesSales t = new ProductTypeTransitCumulativeSeriesSales();
-            t.setCost((Double)o[0]);
-            t.setSales((Double) o[1]);
-            t.setUnits((Long) o[2]);
-            ProductType pt = em.find(ProductType.class, o[3]);
-            t.setProductType(pt);
-            result.add(t);
-        }
-        
-        //building sales range
-        HashMap<ProductType, List<Double>> seriesGenerator = new HashMap<>();
-        
-        TypedQuery<Object[]> q2 = getEntityManager().createQuery(TYPE_RANGE_QUERY, Object[].class);
-        p1 = q2.getParameter("startId", Integer.class);
-        q2.setParameter(p1, Integer.parseInt(from));
-        p2 = q2.getParameter("endId", Integer.class);
-        q2.setParameter(p2, Integer.parseInt(to));
-        resultList = q2.getResultList();
-        
-        DIFF = System.currentTimeMillis() - TIME;
-        System.out.println("    Q2 TIME = "+DIFF+"ms");
-        
-        for (Object[] o : resultList) {
-            ProductType pt = em.find(ProductType.class, o[1]);
-            if (!seriesGenerator.containsKey(pt)) {
-                seriesGenerator.put(pt, new ArrayList<Double>());
-            }
-            seriesGenerator.get(pt).add(((Long)o[0]).doubleValue());
-        }
-        for (ProductTypeTransitCumulativeSeriesSales tcs : result){
-            tcs.setSeries(seriesGenerator.get(tcs.getProductType())) ;
-        }
-        
+        long DIFF, START_TIME = System.currentTimeMillis();
+        List<ProductTypeTransitCumulativeSeriesSales> result = cube.findTypeRange(Integer.parseInt(from), Integer.parseInt(to), null);
         DIFF = System.currentTimeMillis() - START_TIME;
         System.out.println("    TOTAL TIME = "+DIFF+"ms");
-
         return result;
     }
 
@@ -285,28 +208,9 @@ public class CumulativeLiveSalesFacadeREST {
     public List<RegionTransitCumulativeSales> findRegionRange(@PathParam("from") String from, @PathParam("to") String to) {
         System.out.println("START findRegionRange (from="+from+" , to="+to+")");
         long DIFF, START_TIME = System.currentTimeMillis();
-        TypedQuery<Object[]> q = getEntityManager().createQuery(REGION_SUM_QUERY, Object[].class);
-        Parameter<Integer> p1 = q.getParameter("startId", Integer.class);
-        q.setParameter(p1, Integer.parseInt(from));
-        Parameter<Integer> p2 = q.getParameter("endId", Integer.class);
-        q.setParameter(p2, Integer.parseInt(to));
-        
-        List<RegionTransitCumulativeSales> result = new ArrayList<>();
-        List<Object[]> resultList = q.getResultList();
-
-        for (Object[] o : resultList) {
-            RegionTransitCumulativeSales t = new RegionTransitCumulativeSales();
-            t.setCost((Double)o[0]);
-            t.setSales((Double) o[1]);
-            t.setUnits((Long) o[2]);
-            Region region = em.find(Region.class, o[3]);
-            t.setRegion(region);
-            result.add(t);
-        }
-        
+        List<RegionTransitCumulativeSales> result = cube.findRegionRange(Integer.parseInt(from), Integer.parseInt(to));
         DIFF = System.currentTimeMillis() - START_TIME;
         System.out.println("    TOTAL TIME = "+DIFF+"ms");
-        
         return result;
     }
     
@@ -315,7 +219,13 @@ public class CumulativeLiveSalesFacadeREST {
     @GET
     @Produces({"application/xml", "application/json"})
     @Path("/region/{regionId}")
-    public List<TransitCumulativeSales> findAllRegion(@PathParam("regionId") Integer regionId) {       
+    public Response findAllRegion(@Context Request request, @PathParam("regionId") Integer regionId) {
+        Response notModified = ConditionalGet.notModified(request, dataVersion.getHistoryTag(), dataVersion.getHistoryModified());
+        if (notModified != null) return notModified;
+        return ConditionalGet.ok(new GenericEntity<List<TransitCumulativeSales>>(findAllRegion(regionId)) {}, dataVersion.getHistoryTag(), dataVersion.getHistoryModified());
+    }
+
+    public List<TransitCumulativeSales> findAllRegion(Integer regionId) {       
         TypedQuery<Object[]> baseRangeQuery = em.createQuery(REGION_RANGE_QUERY, Object[].class);
         Parameter<Integer> p1 = baseRangeQuery.getParameter("regionId", Integer.class);
         baseRangeQuery.setParameter(p1, regionId);
@@ -338,31 +248,11 @@ public class CumulativeLiveSalesFacadeREST {
     @Path("/state/{from}/{to}/{regionId}")
     @Produces({"application/xml", "application/json"})
     public List<StateTransitCumulativeSales> findStateRange(@PathParam("from") String from, @PathParam("to") String to, @PathParam("regionId") Integer regionId) {
-        System.out.println("START findRegionRange (from="+from+" , to="+to+")");
+        System.out.println("START findStateRange (from="+from+" , to="+to+")");
         long DIFF, START_TIME = System.currentTimeMillis();
-        TypedQuery<Object[]> q = getEntityManager().createQuery(STATE_SUM_QUERY, Object[].class);
-        Parameter<Integer> p1 = q.getParameter("startId", Integer.class);
-        q.setParameter(p1, Integer.parseInt(from));
-        Parameter<Integer> p2 = q.getParameter("endId", Integer.class);
-        q.setParameter(p2, Integer.parseInt(to));
-        Parameter<Integer> p3 = q.getParameter("regionId", Integer.class);
-        q.setParameter(p3, regionId);
-        
-        List<StateTransitCumulativeSales> result = new ArrayList<>();
-        List<Object[]> resultList = q.getResultList();
-
-        for (Object[] o : resultList) {
-            StateTransitCumulativeSales t = new StateTransitCumulativeSales();
-            t.setCost((Double)o[0]);
-            t.setSales((Double) o[1]);
-            t.setUnits((Long) o[2]);
-            t.setState((String) o[3]);
-            result.add(t);
-        }
-        
+        List<StateTransitCumulativeSales> result = cube.findStateRange(Integer.parseInt(from), Integer.parseInt(to), regionId);
         DIFF = System.currentTimeMillis() - START_TIME;
         System.out.println("    TOTAL TIME = "+DIFF+"ms");
-        
         return result;
     }
     
@@ -370,67 +260,110 @@ public class CumulativeLiveSalesFacadeREST {
     @Path("/type/{from}/{to}/{regionId}")
     @Produces({"application/xml", "application/json"})
     public List<ProductTypeTransitCumulativeSeriesSales> findTypeRegionRange(@PathParam("from") String from, @PathParam("to") String to, @PathParam("regionId") Integer regionId) {
-        System.out.println("START findTypeRange (from="+from+" , to="+to+")");
-        long DIFF, TIME = System.currentTimeMillis(), START_TIME = System.currentTimeMillis();
-        TypedQuery<Object[]> q = getEntityManager().createQuery(REGION_TYPE_SUM_QUERY, Object[].class);
-      
-        DIFF = System.currentTimeMillis() - TIME;
-        System.out.println("    Q1 COMP TIME = "+DIFF+"ms");
-        TIME = System.currentTimeMillis();
-        
-        Parameter<Integer> p1 = q.getParameter("startId", Integer.class);
-        q.setParameter(p1, Integer.parseInt(from));
-        Parameter<Integer> p2 = q.getParameter("endId", Integer.class);
-        q.setParameter(p2, Integer.parseInt(to));
-        Parameter<Integer> p3 = q.getParameter("regionId", Integer.class);
-        q.setParameter(p3, regionId);
-        
-        List<ProductTypeTransitCumulativeSeriesSales> result = new ArrayList<>();
-        List<Object[]> resultList = q.getResultList();
-        
-        DIFF = System.currentTimeMillis() - TIME;
-        System.out.println("    Q1 TIME = "+DIFF+"ms");
-        TIME = System.currentTimeMillis();
-               
-        for (Object[] o : resultList) {
-            ProductTypeTransitCumulativeSeriesSales t = new ProductTypeTransitCumulativeSeriesSales();
-            t.setCost((Double)o[0]);
-            t.setSales((Double) o[1]);
-            t.setUnits((Long) o[2]);
-            ProductType pt = em.find(ProductType.class, o[3]);
-            t.setProductType(pt);
-            result.add(t);
-        }
-        
-        //building sales range
-        HashMap<ProductType, List<Double>> seriesGenerator = new HashMap<>();
-        
-        TypedQuery<Object[]> q2 = getEntityManager().createQuery(REGION_TYPE_RANGE_QUERY, Object[].class);
-        p1 = q2.getParameter("startId", Integer.class);
-        p2 = q2.getParameter("endId", Integer.class);
-        p3 = q2.getParameter("regionId", Integer.class);
-        q2.setParameter(p1, Integer.parseInt(from));
-        q2.setParameter(p2, Integer.parseInt(to));
-        q2.setParameter(p3, regionId);
-        resultList = q2.getResultList();
-        
-        DIFF = System.currentTimeMillis() - TIME;
-        System.out.println("    Q2 TIME = "+DIFF+"ms");
-        
-        for (Object[] o : resultList) {
-            ProductType pt = em.find(ProductType.class, o[1]);
-            if (!seriesGenerator.containsKey(pt)){
-                seriesGenerator.put(pt, new ArrayList<Double>());
-            }            
-            seriesGenerator.get(pt).add(((Long)o[0]).doubleValue());
-        }
-        for (ProductTypeTransitCumulativeSeriesSales tcs : result){
-            tcs.setSeries(seriesGenerator.get(tcs.getProductType()));
-        }
-        
+        System.out.println("START findTypeRegionRange (from="+from+" , to="+to+")");
+        long DIFF, START_TIME = System.currentTimeMillis();
+        List<ProductTypeTransitCumulativeSeriesSales> result = cube.findTypeRange(Integer.parseInt(from), Integer.parseInt(to), regionId);
         DIFF = System.currentTimeMillis() - START_TIME;
         System.out.println("    TOTAL TIME = "+DIFF+"ms");
+        return result;
+    }
 
+    //date calls --same as above but the range is given in days since 1970-01-01 instead of dailySalesIds
+    @GET
+    @Path("/type/date/{fromEpochDay}/{toEpochDay}")
+    @Produces({"application/xml", "application/json"})
+    public List<ProductTypeTransitCumulativeSeriesSales> findTypeDateRange(@PathParam("fromEpochDay") String from, @PathParam("toEpochDay") String to) {
+        System.out.println("START findTypeDateRange (from="+from+" , to="+to+")");
+        long DIFF, START_TIME = System.currentTimeMillis();
+        List<ProductTypeTransitCumulativeSeriesSales> result = cube.findTypeDateRange(Integer.parseInt(from), Integer.parseInt(to), null);
+        DIFF = System.currentTimeMillis() - START_TIME;
+        System.out.println("    TOTAL TIME = "+DIFF+"ms");
+        return result;
+    }
+
+    @GET
+    @Path("/type/date/{fromEpochDay}/{toEpochDay}/{regionId}")
+    @Produces({"application/xml", "application/json"})
+    public List<ProductTypeTransitCumulativeSeriesSales> findTypeRegionDateRange(@PathParam("fromEpochDay") String from, @PathParam("toEpochDay") String to, @PathParam("regionId") Integer regionId) {
+        System.out.println("START findTypeRegionDateRange (from="+from+" , to="+to+")");
+        long DIFF, START_TIME = System.currentTimeMillis();
+        List<ProductTypeTransitCumulativeSeriesSales> result = cube.findTypeDateRange(Integer.parseInt(from), Integer.parseInt(to), regionId);
+        DIFF = System.currentTimeMillis() - START_TIME;
+        System.out.println("    TOTAL TIME = "+DIFF+"ms");
+        return result;
+    }
+
+    @GET
+    @Path("/region/date/{fromEpochDay}/{toEpochDay}")
+    @Produces({"application/xml", "application/json"})
+    public List<RegionTransitCumulativeSales> findRegionDateRange(@PathParam("fromEpochDay") String from, @PathParam("toEpochDay") String to) {
+        System.out.println("START findRegionDateRange (from="+from+" , to="+to+")");
+        long DIFF, START_TIME = System.currentTimeMillis();
+        List<RegionTransitCumulativeSales> result = cube.findRegionDateRange(Integer.parseInt(from), Integer.parseInt(to));
+        DIFF = System.currentTimeMillis() - START_TIME;
+        System.out.println("    TOTAL TIME = "+DIFF+"ms");
+        return result;
+    }
+
+    @GET
+    @Path("/state/date/{fromEpochDay}/{toEpochDay}/{regionId}")
+    @Produces({"application/xml", "application/json"})
+    public List<StateTransitCumulativeSales> findStateDateRange(@PathParam("fromEpochDay") String from, @PathParam("toEpochDay") String to, @PathParam("regionId") Integer regionId) {
+        System.out.println("START findStateDateRange (from="+from+" , to="+to+")");
+        long DIFF, START_TIME = System.currentTimeMillis();
+        List<StateTransitCumulativeSales> result = cube.findStateDateRange(Integer.parseInt(from), Integer.parseInt(to), regionId);
+        DIFF = System.currentTimeMillis() - START_TIME;
+        System.out.println("    TOTAL TIME = "+DIFF+"ms");
+        return result;
+    }
+
+    //snapshot calls --everything the history tab needs for a range in one request
+    @GET
+    @Path("/snapshot/{from}/{to}")
+    @Produces({"application/xml", "application/json"})
+    public HistorySnapshot findSnapshot(@PathParam("from") String from, @PathParam("to") String to) {
+        return snapshot(Integer.parseInt(from), Integer.parseInt(to), null);
+    }
+
+    @GET
+    @Path("/snapshot/{from}/{to}/{regionId}")
+    @Produces({"application/xml", "application/json"})
+    public HistorySnapshot findRegionSnapshot(@PathParam("from") String from, @PathParam("to") String to, @PathParam("regionId") Integer regionId) {
+        return snapshot(Integer.parseInt(from), Integer.parseInt(to), regionId);
+    }
+
+    private HistorySnapshot snapshot(final int from, final int to, final Integer regionId) {
+        System.out.println("START snapshot (from="+from+" , to="+to+" , regionId="+regionId+")");
+        long DIFF, START_TIME = System.currentTimeMillis();
+        ParallelBranches branches = new ParallelBranches(asyncTask);
+        Future<List<ProductTypeTransitCumulativeSeriesSales>> productTypes = branches.fork("TYPE", new Callable<List<ProductTypeTransitCumulativeSeriesSales>>() {
+            @Override
+            public List<ProductTypeTransitCumulativeSeriesSales> call() {
+                return cube.findTypeRange(from, to, regionId);
+            }
+        });
+        HistorySnapshot result = new HistorySnapshot();
+        if (regionId == null) {
+            Future<List<RegionTransitCumulativeSales>> regions = branches.fork("REGION", new Callable<List<RegionTransitCumulativeSales>>() {
+                @Override
+                public List<RegionTransitCumulativeSales> call() {
+                    return cube.findRegionRange(from, to);
+                }
+            });
+            result.setRegions(branches.join(regions));
+        } else {
+            Future<List<StateTransitCumulativeSales>> states = branches.fork("STATE", new Callable<List<StateTransitCumulativeSales>>() {
+                @Override
+                public List<StateTransitCumulativeSales> call() {
+                    return cube.findStateRange(from, to, regionId);
+                }
+            });
+            result.setStates(branches.join(states));
+        }
+        result.setProductTypes(branches.join(productTypes));
+        branches.printTimings();
+        DIFF = System.currentTimeMillis() - START_TIME;
+        System.out.println("    TOTAL TIME = "+DIFF+"ms");
         return result;
     }
 }
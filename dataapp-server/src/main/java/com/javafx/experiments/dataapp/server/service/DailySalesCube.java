@@ -0,0 +1,608 @@
+/*
+ * Copyright (c) 2008, 2011 Oracle and/or its affiliates.
+ * All rights reserved. Use is subject to license terms.
+ *
+ * This file is available and licensed under the following license:
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  - Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *  - Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in
+ *    the documentation and/or other materials provided with the distribution.
+ *  - Neither the name of Oracle Corporation nor the names of its
+ *    contributors may be used to endorse or promote products derived
+ *    from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.javafx.experiments.dataapp.server.service;
+
+import com.javafx.experiments.dataapp.model.Product;
+import com.javafx.experiments.dataapp.model.ProductType;
+import com.javafx.experiments.dataapp.model.Region;
+import com.javafx.experiments.dataapp.simulation.persistance.DimensionCache;
+import com.javafx.experiments.dataapp.model.transit.HeatMapMonths;
+import com.javafx.experiments.dataapp.model.transit.HeatMapRange;
+import com.javafx.experiments.dataapp.model.transit.ProductTypeTransitCumulativeSeriesSales;
+import com.javafx.experiments.dataapp.model.transit.RegionTransitCumulativeSales;
+import com.javafx.experiments.dataapp.model.transit.StateTransitCumulativeSales;
+
+import javax.annotation.PostConstruct;
+import javax.ejb.DependsOn;
+import javax.ejb.EJB;
+import javax.ejb.Lock;
+import javax.ejb.LockType;
+import javax.ejb.Singleton;
+import javax.ejb.Startup;
+import javax.persistence.EntityManager;
+import javax.persistence.Parameter;
+import javax.persistence.PersistenceContext;
+import javax.persistence.TypedQuery;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+import java.util.TimeZone;
+
+/**
+ * In memory, column oriented copy of the DAILY_SALES table. Every row is held as
+ * a set of primitive columns so the history range aggregations can be answered
+ * by scanning arrays instead of running group by queries through the database.
+ * <p/>
+ * Rows are kept in dailySalesId order, the table is loaded on startup and the
+ * new rows are appended after DailySalesGenerator has rolled over a day. The
+ * totals are kept per day in a DailySalesPrefixIndex as well so only the partial
+ * days at either end of a range have to be scanned, and per month and state in a
+ * HeatMapMatrix for the heat map.
+ */
+@Singleton
+@Startup
+@DependsOn("DimensionCacheBean")
+@Lock(LockType.READ)
+public class DailySalesCube {
+    @PersistenceContext(unitName = "DataAppLibraryPU")
+    private EntityManager em;
+
+    @EJB
+    private DimensionCacheBean dimensionCache;
+
+    private static final String LOAD_QUERY =
+            "select hs.dailySalesId, "
+                + "hs.date, "
+                + "p.productId, "
+                + "hs.productTypeId, "
+                + "r.regionId, "
+                + "hs.stateProvCd, "
+                + "hs.quantity "
+            + "from DailySales hs "
+            + "left join hs.product p "
+            + "left join hs.region r "
+            + "where hs.dailySalesId > :lastId "
+            + "order by hs.dailySalesId";
+
+    static final long MILLIS_PER_DAY = 24L * 60 * 60 * 1000;
+    private static final int INITIAL_CAPACITY = 1 << 16;
+    // longest daily series returned before falling back to weeks, months then quarters
+    private static final int MAX_SERIES_POINTS = 120;
+
+    // columns, one entry per DailySales row
+    private int[] ids = new int[INITIAL_CAPACITY];
+    private int[] dates = new int[INITIAL_CAPACITY];
+    private int[] products = new int[INITIAL_CAPACITY];
+    private int[] productTypes = new int[INITIAL_CAPACITY];
+    private int[] regions = new int[INITIAL_CAPACITY];
+    private int[] states = new int[INITIAL_CAPACITY];
+    private int[] quantities = new int[INITIAL_CAPACITY];
+    private int size;
+    // first and last date of all the rows, as epoch days
+    private int minDate = Integer.MAX_VALUE;
+    private int maxDate = Integer.MIN_VALUE;
+
+    // dimensions, indexed by id, copied out of the DimensionCache
+    private int dimensionVersion = -1;
+    private double[] productCost = new double[0];
+    private double[] productPrice = new double[0];
+    private ProductType[] productTypeById = new ProductType[0];
+    private Region[] regionById = new Region[0];
+
+    private DailySalesPrefixIndex index;
+    private HeatMapMatrix heatMap;
+
+    @PostConstruct
+    public void load() {
+        long START_TIME = System.currentTimeMillis();
+        loadDimensions();
+        appendRows();
+        System.out.println("DailySalesCube loaded " + size + " rows in " + (System.currentTimeMillis() - START_TIME) + "ms");
+    }
+
+    /**
+     * Append the DailySales rows written since the last load, called once
+     * DailySalesGenerator has moved the old sales orders over
+     */
+    @Lock(LockType.WRITE)
+    public void append() {
+        int before = size;
+        if (dimensionCache.getCache().getVersion() != dimensionVersion) {
+            loadDimensions();
+            for (int i = 0; i < size; i++) {
+                addToIndex(i);
+            }
+        }
+        appendRows();
+        System.out.println("DailySalesCube appended " + (size - before) + " rows");
+    }
+
+    /**
+     * Copy the dimensions out of the DimensionCache and start a new, empty, index
+     */
+    private void loadDimensions() {
+        DimensionCache dimensions = dimensionCache.getCache();
+        dimensionVersion = dimensions.getVersion();
+        productCost = new double[dimensions.getProductIdLimit()];
+        productPrice = new double[dimensions.getProductIdLimit()];
+        for (int id = 0; id < productCost.length; id++) {
+            Product p = dimensions.getProduct(id);
+            if (p == null) continue;
+            productCost[id] = p.getCost() == null ? 0 : p.getCost();
+            productPrice[id] = p.getPrice() == null ? 0 : p.getPrice();
+        }
+        productTypeById = new ProductType[dimensions.getProductTypeIdLimit()];
+        for (int id = 0; id < productTypeById.length; id++) {
+            productTypeById[id] = dimensions.getProductType(id);
+        }
+        regionById = new Region[dimensions.getRegionIdLimit()];
+        for (int id = 0; id < regionById.length; id++) {
+            regionById[id] = dimensions.getRegion(id);
+        }
+        index = new DailySalesPrefixIndex(regionById.length, productTypeById.length, Region.ALL_STATES.length);
+        heatMap = new HeatMapMatrix(productTypeById.length, Region.ALL_STATES.length);
+    }
+
+    private void appendRows() {
+        TypedQuery<Object[]> q = em.createQuery(LOAD_QUERY, Object[].class);
+        Parameter<Integer> p1 = q.getParameter("lastId", Integer.class);
+        q.setParameter(p1, size == 0 ? -1 : ids[size - 1]);
+        for (Object[] o : q.getResultList()) {
+            ensureCapacity(size + 1);
+            ids[size] = (Integer) o[0];
+            dates[size] = toEpochDay((Date) o[1]);
+            products[size] = o[2] == null ? 0 : (Integer) o[2];
+            productTypes[size] = o[3] == null ? 0 : (Integer) o[3];
+            regions[size] = o[4] == null ? 0 : (Integer) o[4];
+            states[size] = o[5] == null ? -1 : Arrays.binarySearch(Region.ALL_STATES, (String) o[5]);
+            quantities[size] = o[6] == null ? 0 : (Integer) o[6];
+            minDate = Math.min(minDate, dates[size]);
+            maxDate = Math.max(maxDate, dates[size]);
+            addToIndex(size);
+            size++;
+        }
+    }
+
+    private void addToIndex(int i) {
+        index.add(i, dates[i], regions[i], productTypes[i], states[i], quantities[i],
+                quantities[i] * productCost[products[i]], quantities[i] * productPrice[products[i]]);
+        heatMap.add(dates[i], productTypes[i], states[i], quantities[i]);
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > ids.length) {
+            int newLength = Math.max(capacity, ids.length * 2);
+            ids = Arrays.copyOf(ids, newLength);
+            dates = Arrays.copyOf(dates, newLength);
+            products = Arrays.copyOf(products, newLength);
+            productTypes = Arrays.copyOf(productTypes, newLength);
+            regions = Arrays.copyOf(regions, newLength);
+            states = Arrays.copyOf(states, newLength);
+            quantities = Arrays.copyOf(quantities, newLength);
+        }
+    }
+
+    /**
+     * Sales per product type, with the units series per day (per week, month or
+     * quarter for long ranges, see the series resolution, start and days of
+     * each result), for the rows with
+     * from <= dailySalesId <= to
+     *
+     * @param regionId region to restrict to or null for all regions
+     */
+    public List<ProductTypeTransitCumulativeSeriesSales> findTypeRange(int from, int to, Integer regionId) {
+        return typeRange(lowerBound(from), lowerBound(to + 1), Integer.MIN_VALUE, Integer.MAX_VALUE, regionId);
+    }
+
+    /**
+     * Sales per product type, with the units series per day (per week, month or
+     * quarter for long ranges, see the series resolution, start and days of
+     * each result), for the days
+     * fromEpochDay <= date <= toEpochDay
+     *
+     * @param regionId region to restrict to or null for all regions
+     */
+    public List<ProductTypeTransitCumulativeSeriesSales> findTypeDateRange(int fromEpochDay, int toEpochDay, Integer regionId) {
+        return typeRange(0, size, fromEpochDay, toEpochDay, regionId);
+    }
+
+    private List<ProductTypeTransitCumulativeSeriesSales> typeRange(int start, int end, int fromDate, int toDate, Integer regionId) {
+        int region = regionId == null ? -1 : regionId;
+        if (region < -1 || region >= regionById.length) {
+            return new ArrayList<>();
+        }
+
+        int typeCount = productTypeById.length;
+        double[] cost = new double[typeCount];
+        double[] sales = new double[typeCount];
+        long[] units = new long[typeCount];
+        double[][] series = new double[typeCount][];
+        int[][] seriesStart = new int[typeCount][];
+        int[][] seriesDays = new int[typeCount][];
+        int[] seriesLength = new int[typeCount];
+        int tier = DailySalesPrefixIndex.DAY;
+        if (start < end) {
+            // one pass over the days in the range gives both the totals and the series,
+            // whole days come from the index and the partial days at either end are scanned.
+            // Long ranges are bucketed into weeks, months or quarters to keep the series short
+            int firstDay = firstDay(start, fromDate);
+            int lastDay = lastDay(end, toDate);
+            tier = seriesTier(firstDay, lastDay);
+            int rangeFirstDate = firstDay <= lastDay ? index.dayDate(firstDay) : 0;
+            int rangeLastDate = firstDay <= lastDay ? index.dayDate(lastDay) : 0;
+            double[] bucketCost = new double[typeCount];
+            double[] bucketSales = new double[typeCount];
+            long[] bucketUnits = new long[typeCount];
+            for (int day = firstDay; day <= lastDay; ) {
+                Arrays.fill(bucketCost, 0);
+                Arrays.fill(bucketSales, 0);
+                Arrays.fill(bucketUnits, 0);
+                int bucketStart = day;
+                int bucket = index.bucketOf(day, tier);
+                int runStart = -1;
+                for (; day <= lastDay && index.bucketOf(day, tier) == bucket; day++) {
+                    int dayStart = index.dayStart(day);
+                    int dayEnd = index.dayEnd(day);
+                    boolean inDates = index.dayDate(day) >= fromDate && index.dayDate(day) <= toDate;
+                    if (inDates && start <= dayStart && dayEnd <= end) {
+                        if (runStart == -1) runStart = day;
+                        continue;
+                    }
+                    if (runStart != -1) {
+                        index.sumTypes(runStart, day, region, bucketCost, bucketSales, bucketUnits);
+                        runStart = -1;
+                    }
+                    if (inDates) {
+                        scanTypes(Math.max(start, dayStart), Math.min(end, dayEnd), region, bucketCost, bucketSales, bucketUnits);
+                    }
+                }
+                if (runStart != -1) {
+                    index.sumTypes(runStart, day, region, bucketCost, bucketSales, bucketUnits);
+                }
+                // the calendar days the point sums, cut to the range at either end
+                int pointStart = Math.max(DailySalesPrefixIndex.bucketStartDate(bucket, tier), rangeFirstDate);
+                int pointEnd = Math.min(DailySalesPrefixIndex.bucketStartDate(bucket + 1, tier), rangeLastDate + 1);
+                int pointDays = Math.max(1, pointEnd - pointStart);
+                for (int type = 0; type < typeCount; type++) {
+                    if (bucketUnits[type] == 0) continue;
+                    cost[type] += bucketCost[type];
+                    sales[type] += bucketSales[type];
+                    units[type] += bucketUnits[type];
+                    if (series[type] == null) {
+                        series[type] = new double[lastDay - bucketStart + 1];
+                        seriesStart[type] = new int[lastDay - bucketStart + 1];
+                        seriesDays[type] = new int[lastDay - bucketStart + 1];
+                    }
+                    seriesStart[type][seriesLength[type]] = pointStart;
+                    seriesDays[type][seriesLength[type]] = pointDays;
+                    series[type][seriesLength[type]++] = bucketUnits[type];
+                }
+            }
+        }
+
+        List<ProductTypeTransitCumulativeSeriesSales> result = new ArrayList<>();
+        for (int type = 0; type < typeCount; type++) {
+            if (units[type] == 0 || productTypeById[type] == null) continue;
+            List<Double> typeSeries = new ArrayList<>(seriesLength[type]);
+            List<Integer> typeSeriesStart = new ArrayList<>(seriesLength[type]);
+            List<Integer> typeSeriesDays = new ArrayList<>(seriesLength[type]);
+            for (int d = 0; d < seriesLength[type]; d++) {
+                typeSeries.add(series[type][d]);
+                typeSeriesStart.add(seriesStart[type][d]);
+                typeSeriesDays.add(seriesDays[type][d]);
+            }
+            ProductTypeTransitCumulativeSeriesSales t = new ProductTypeTransitCumulativeSeriesSales();
+            t.setCost(cost[type]);
+            t.setSales(sales[type]);
+            t.setUnits(units[type]);
+            t.setProductType(productTypeById[type]);
+            t.setSeries(typeSeries);
+            t.setSeriesResolution(DailySalesPrefixIndex.TIER_NAMES[tier]);
+            t.setSeriesStart(typeSeriesStart);
+            t.setSeriesDays(typeSeriesDays);
+            result.add(t);
+        }
+        return result;
+    }
+
+    private void scanTypes(int start, int end, int region, double[] cost, double[] sales, long[] units) {
+        for (int i = start; i < end; i++) {
+            if (region != -1 && regions[i] != region) continue;
+            int type = productTypes[i];
+            int quantity = quantities[i];
+            cost[type] += quantity * productCost[products[i]];
+            sales[type] += quantity * productPrice[products[i]];
+            units[type] += quantity;
+        }
+    }
+
+    /**
+     * Sales per region for the rows with from <= dailySalesId <= to
+     */
+    public List<RegionTransitCumulativeSales> findRegionRange(int from, int to) {
+        return regionRange(lowerBound(from), lowerBound(to + 1), Integer.MIN_VALUE, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Sales per region for the days fromEpochDay <= date <= toEpochDay
+     */
+    public List<RegionTransitCumulativeSales> findRegionDateRange(int fromEpochDay, int toEpochDay) {
+        return regionRange(0, size, fromEpochDay, toEpochDay);
+    }
+
+    private List<RegionTransitCumulativeSales> regionRange(int start, int end, int fromDate, int toDate) {
+        final double[] cost = new double[regionById.length];
+        final double[] sales = new double[regionById.length];
+        final long[] units = new long[regionById.length];
+        visitRange(start, end, fromDate, toDate, new RangeVisitor() {
+            @Override
+            public void wholeDays(int fromDay, int toDay) {
+                index.sumRegions(fromDay, toDay, cost, sales, units);
+            }
+
+            @Override
+            public void rows(int start, int end) {
+                scanRegions(start, end, cost, sales, units);
+            }
+        });
+
+        List<RegionTransitCumulativeSales> result = new ArrayList<>();
+        for (int region = 0; region < regionById.length; region++) {
+            if (units[region] == 0 || regionById[region] == null) continue;
+            RegionTransitCumulativeSales t = new RegionTransitCumulativeSales();
+            t.setCost(cost[region]);
+            t.setSales(sales[region]);
+            t.setUnits(units[region]);
+            t.setRegion(regionById[region]);
+            result.add(t);
+        }
+        return result;
+    }
+
+    private void scanRegions(int start, int end, double[] cost, double[] sales, long[] units) {
+        for (int i = start; i < end; i++) {
+            int region = regions[i];
+            int quantity = quantities[i];
+            cost[region] += quantity * productCost[products[i]];
+            sales[region] += quantity * productPrice[products[i]];
+            units[region] += quantity;
+        }
+    }
+
+    /**
+     * Sales per state within a region for the rows with from <= dailySalesId <= to
+     */
+    public List<StateTransitCumulativeSales> findStateRange(int from, int to, int regionId) {
+        return stateRange(lowerBound(from), lowerBound(to + 1), Integer.MIN_VALUE, Integer.MAX_VALUE, regionId);
+    }
+
+    /**
+     * Sales per state within a region for the days fromEpochDay <= date <= toEpochDay
+     */
+    public List<StateTransitCumulativeSales> findStateDateRange(int fromEpochDay, int toEpochDay, int regionId) {
+        return stateRange(0, size, fromEpochDay, toEpochDay, regionId);
+    }
+
+    private List<StateTransitCumulativeSales> stateRange(int start, int end, int fromDate, int toDate, final int regionId) {
+        final double[] cost = new double[Region.ALL_STATES.length];
+        final double[] sales = new double[Region.ALL_STATES.length];
+        final long[] units = new long[Region.ALL_STATES.length];
+        if (regionId < 0 || regionId >= regionById.length) {
+            return new ArrayList<>();
+        }
+        visitRange(start, end, fromDate, toDate, new RangeVisitor() {
+            @Override
+            public void wholeDays(int fromDay, int toDay) {
+                index.sumStates(fromDay, toDay, regionId, cost, sales, units);
+            }
+
+            @Override
+            public void rows(int start, int end) {
+                scanStates(start, end, regionId, cost, sales, units);
+            }
+        });
+
+        List<StateTransitCumulativeSales> result = new ArrayList<>();
+        for (int state = 0; state < Region.ALL_STATES.length; state++) {
+            if (units[state] == 0) continue;
+            StateTransitCumulativeSales t = new StateTransitCumulativeSales();
+            t.setCost(cost[state]);
+            t.setSales(sales[state]);
+            t.setUnits(units[state]);
+            t.setState(Region.ALL_STATES[state]);
+            result.add(t);
+        }
+        return result;
+    }
+
+    private void scanStates(int start, int end, int regionId, double[] cost, double[] sales, long[] units) {
+        for (int i = start; i < end; i++) {
+            int state = states[i];
+            if (regions[i] != regionId || state < 0) continue;
+            int quantity = quantities[i];
+            cost[state] += quantity * productCost[products[i]];
+            sales[state] += quantity * productPrice[products[i]];
+            units[state] += quantity;
+        }
+    }
+
+    /**
+     * Split the rows start <= row < end dated fromDate..toDate into runs of whole
+     * days, answered from the index, and parts of days that have to be scanned
+     */
+    private void visitRange(int start, int end, int fromDate, int toDate, RangeVisitor visitor) {
+        if (start >= end) return;
+        int firstDay = firstDay(start, fromDate);
+        int lastDay = lastDay(end, toDate);
+        int runStart = -1;
+        for (int day = firstDay; day <= lastDay; day++) {
+            int dayStart = index.dayStart(day);
+            int dayEnd = index.dayEnd(day);
+            boolean inDates = index.dayDate(day) >= fromDate && index.dayDate(day) <= toDate;
+            if (inDates && start <= dayStart && dayEnd <= end) {
+                if (runStart == -1) runStart = day;
+                if (fromDate == Integer.MIN_VALUE && toDate == Integer.MAX_VALUE) {
+                    // no date filter, every day before the last one is whole
+                    day = Math.max(day, index.dayEnd(lastDay) <= end ? lastDay : lastDay - 1);
+                }
+                continue;
+            }
+            if (runStart != -1) {
+                visitor.wholeDays(runStart, day);
+                runStart = -1;
+            }
+            if (inDates) {
+                visitor.rows(Math.max(start, dayStart), Math.min(end, dayEnd));
+            }
+        }
+        if (runStart != -1) {
+            visitor.wholeDays(runStart, lastDay + 1);
+        }
+    }
+
+    /**
+     * First day holding rows from start on, moved up to fromDate when the days
+     * can be binary searched by date
+     */
+    private int firstDay(int start, int fromDate) {
+        int day = index.dayOf(start);
+        if (index.isAscending() && fromDate != Integer.MIN_VALUE) {
+            day = Math.max(day, index.firstDayOnOrAfter(fromDate));
+        }
+        return day;
+    }
+
+    /**
+     * Last day holding rows before end, moved back to toDate when the days
+     * can be binary searched by date
+     */
+    private int lastDay(int end, int toDate) {
+        int day = index.dayOf(end - 1);
+        if (index.isAscending() && toDate != Integer.MAX_VALUE) {
+            day = Math.min(day, index.firstDayOnOrAfter(toDate + 1) - 1);
+        }
+        return day;
+    }
+
+    /**
+     * Coarsest resolution that still gives the series of the days firstDay..lastDay
+     * no more than MAX_SERIES_POINTS points
+     */
+    private int seriesTier(int firstDay, int lastDay) {
+        if (firstDay >= lastDay) return DailySalesPrefixIndex.DAY;
+        long span = Math.abs((long) index.dayDate(lastDay) - index.dayDate(firstDay)) + 1;
+        if (span <= MAX_SERIES_POINTS) return DailySalesPrefixIndex.DAY;
+        if (span <= MAX_SERIES_POINTS * 7L) return DailySalesPrefixIndex.WEEK;
+        if (span <= MAX_SERIES_POINTS * 31L) return DailySalesPrefixIndex.MONTH;
+        return DailySalesPrefixIndex.QUARTER;
+    }
+
+    private interface RangeVisitor {
+        void wholeDays(int fromDay, int toDay);
+
+        void rows(int start, int end);
+    }
+
+    /**
+     * First and last date with sales, kept up to date as the rows are loaded
+     * and appended so the heat map does not have to query DAILY_SALES for it
+     */
+    public HeatMapRange findDateRange() {
+        HeatMapRange result = new HeatMapRange();
+        if (size > 0) {
+            result.setMinDate(toDate(minDate));
+            result.setMaxDate(toDate(maxDate));
+        }
+        return result;
+    }
+
+    /**
+     * Quantities sold per state, in Region.ALL_STATES order, over the calendar
+     * month of the given date
+     *
+     * @param productTypeId product type to restrict to or -1 for all types
+     */
+    public long[] findMonthStates(Date date, int productTypeId) {
+        return heatMap.get(HeatMapMonths.monthOf(date), productTypeId == -1 ? HeatMapMatrix.ALL_TYPES : productTypeId);
+    }
+
+    /**
+     * Quantities sold per state for every month of the history
+     *
+     * @param productTypeId product type to restrict to or -1 for all types
+     */
+    public HeatMapMonths findMonths(int productTypeId) {
+        return heatMap.toMonths(productTypeId == -1 ? HeatMapMatrix.ALL_TYPES : productTypeId, Region.ALL_STATES);
+    }
+
+    /**
+     * Index of the first row with a dailySalesId >= id
+     */
+    private int lowerBound(int id) {
+        int low = 0, high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (ids[mid] < id) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Convert a date into the number of days since 1970-01-01 in the local time zone
+     */
+    static int toEpochDay(Date date) {
+        Calendar cal = Calendar.getInstance();
+        cal.setTime(date);
+        Calendar utc = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+        utc.clear();
+        utc.set(cal.get(Calendar.YEAR), cal.get(Calendar.MONTH), cal.get(Calendar.DAY_OF_MONTH));
+        return (int) (utc.getTimeInMillis() / MILLIS_PER_DAY);
+    }
+
+    /**
+     * Local midnight of the epoch day, the inverse of toEpochDay
+     */
+    static Date toDate(int epochDay) {
+        Calendar utc = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+        utc.setTimeInMillis(epochDay * MILLIS_PER_DAY);
+        Calendar cal = Calendar.getInstance();
+        cal.clear();
+        cal.set(utc.get(Calendar.YEAR), utc.get(Calendar.MONTH), utc.get(Calendar.DAY_OF_MONTH));
+        return cal.getTime();
+    }
+}
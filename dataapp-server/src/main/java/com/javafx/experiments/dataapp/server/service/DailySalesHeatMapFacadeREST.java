@@ -32,139 +32,66 @@
 package com.javafx.experiments.dataapp.server.service;
 
 import com.javafx.experiments.dataapp.model.Region;
+import com.javafx.experiments.dataapp.model.transit.HeatMapMonths;
 import com.javafx.experiments.dataapp.model.transit.HeatMapQuantity;
 import com.javafx.experiments.dataapp.model.transit.HeatMapRange;
 
+import javax.ejb.EJB;
 import javax.ejb.Stateless;
-import javax.persistence.*;
 import javax.ws.rs.GET;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.Request;
+import javax.ws.rs.core.Response;
 import java.util.*;
 
 @Stateless
 @Path("com.javafx.experiments.dataapp.model.heatmap")
 public class DailySalesHeatMapFacadeREST {
 
-    @PersistenceContext(unitName = "DataAppLibraryPU")
-    private EntityManager em;
-    
-    private static final String BASE_QUERY =
-            "select "
-            + "sum(ds1.quantity) ,"
-            + "ds1.stateProvCd "
-            + "from "
-            + "DailySales ds1 "
-            + "where "
-            + "(ds1.date >= :oldStartDate and ds1.date <= :oldEndDate) "
-            + "group by ds1.stateProvCd ";
-
-    private static final String BASE_TYPE_QUERY =
-            "select "
-            + "sum(ds1.quantity), "
-            + "ds1.stateProvCd "
-            + "from "
-            + "DailySales ds1 "
-            + "left join ds1.product p "            
-            + "where "
-            + "(ds1.date >= :oldStartDate and ds1.date <= :oldEndDate) and "
-            + "p.productType.productTypeId = :productTypeId "
-            + "group by ds1.stateProvCd ";
-
-    
-    private static final String RANGE_QUERY = "select max(d.date), min(d.date) from DailySales d ";
-
-    private HashMap<String, Long> runBaseQuery(Date date){
-        Calendar cal = Calendar.getInstance();
-        long DIFF, TIME = System.currentTimeMillis();
-        TypedQuery<Object[]> baseQuery = em.createQuery(BASE_QUERY, Object[].class);
-        HashMap<String, Long> result = new HashMap<>();
+    @EJB
+    private DataVersionBean dataVersion;
 
-        cal.setTime(date);
-        int dayMin = cal.getActualMinimum(Calendar.DAY_OF_MONTH);
-        int dayMax = cal.getActualMaximum(Calendar.DAY_OF_MONTH);
-        cal.set(Calendar.DAY_OF_MONTH, dayMin);
-        Parameter<Date> p1 = baseQuery.getParameter("oldStartDate", Date.class);
-        baseQuery.setParameter(p1, cal.getTime());
-        cal.set(Calendar.DAY_OF_MONTH, dayMax);
-        Parameter<Date> p2 = baseQuery.getParameter("oldEndDate", Date.class);
-        baseQuery.setParameter(p2, cal.getTime());
+    @EJB
+    private DailySalesCube cube;
 
-        List<Object[]> resultList = baseQuery.getResultList();
-
-        DIFF = System.currentTimeMillis() - TIME;
-        System.out.println("    Q TIME = "+DIFF+"ms");
-
-        for (Object[] o : resultList) {
-            result.put((String)o[1], (Long)o[0]);
-        }
-
-        return result;
+    @GET
+    @Produces({"application/xml", "application/json"})
+    @Path("/range/")
+    public Response findRange(@Context Request request) {
+        Response notModified = ConditionalGet.notModified(request, dataVersion.getHistoryTag(), dataVersion.getHistoryModified());
+        if (notModified != null) return notModified;
+        return ConditionalGet.ok(findRange(), dataVersion.getHistoryTag(), dataVersion.getHistoryModified());
     }
-    
-    private HashMap<String, Long> runProductTypeQuery(Date date1, Integer productTypeId){
-        long DIFF, TIME = System.currentTimeMillis();
-        TypedQuery<Object[]> baseQuery = em.createQuery(BASE_TYPE_QUERY, Object[].class);
-        Calendar cal = Calendar.getInstance();
-        
-        HashMap<String, Long> result = new HashMap<>();
-
-        cal.setTime(date1);
-        int dayMin = cal.getActualMinimum(Calendar.DAY_OF_MONTH);
-        int dayMax = cal.getActualMaximum(Calendar.DAY_OF_MONTH);
-        cal.set(Calendar.DAY_OF_MONTH, dayMin);
-        Parameter<Date> p1 = baseQuery.getParameter("oldStartDate", Date.class);
-        baseQuery.setParameter(p1, cal.getTime());
-        cal.set(Calendar.DAY_OF_MONTH, dayMax);
-        Parameter<Date> p2 = baseQuery.getParameter("oldEndDate", Date.class);
-        baseQuery.setParameter(p2, cal.getTime());
-        Parameter<Integer> p3 = baseQuery.getParameter("productTypeId", Integer.class);
-        baseQuery.setParameter(p3, productTypeId);
 
-        List<Object[]> resultList = baseQuery.getResultList();
-
-        DIFF = System.currentTimeMillis() - TIME;
-        System.out.println("    Q TIME = "+DIFF+"ms");
-
-        for (Object[] o : resultList) {
-            result.put((String)o[1],(Long)o[0]);
-        }
-        
-        return result;
+    public HeatMapRange findRange() {
+        return cube.findDateRange();
     }
 
+    /**
+     * Quantities per state for every month at once, so the client can compare
+     * any two months itself, -1 for all product types
+     */
     @GET
     @Produces({"application/xml", "application/json"})
-    @Path("/range/")
-    public HeatMapRange findRange() {
-        Query baseRangeQuery = em.createQuery(RANGE_QUERY);
-        HeatMapRange result = new HeatMapRange();
-        Object[] queryResult = (Object[]) baseRangeQuery.getSingleResult();
-        result.setMaxDate((Date) queryResult[0]);
-        result.setMinDate((Date) queryResult[1]);
-        return result;
+    @Path("/matrix/{productTypeId}")
+    public Response findMatrix(@Context Request request, @PathParam("productTypeId") Integer productTypeId) {
+        Response notModified = ConditionalGet.notModified(request, dataVersion.getHistoryTag(), dataVersion.getHistoryModified());
+        if (notModified != null) return notModified;
+        return ConditionalGet.ok(findMatrix(productTypeId), dataVersion.getHistoryTag(), dataVersion.getHistoryModified());
+    }
+
+    public HeatMapMonths findMatrix(Integer productTypeId) {
+        return cube.findMonths(productTypeId);
     }
 
     @GET
     @Produces({"application/xml", "application/json"})
     @Path("/base/{date1}/{date2}")
     public List<HeatMapQuantity> find(@PathParam("date1") Long longDate1, @PathParam("date2") Long longDate2) {
-        Date date1 = new Date(longDate1);
-        Date date2 = new Date(longDate2);
-        
-        HashMap<String, Long> resultMap1 = runBaseQuery(date1);
-        HashMap<String, Long> resultMap2 = runBaseQuery(date2);
-        
-        List<HeatMapQuantity> results = new ArrayList<>();
-        for(String state : Region.ALL_STATES) {
-            Long v1 = resultMap1.get(state);
-            if (v1 == null) v1 = 0l;
-            Long v2 = resultMap2.get(state);
-            if (v2 == null) v2 = 0l;
-            results.add( new HeatMapQuantity(v1-v2,state,Region.getRegionName(state)));
-        }
-        return results;
+        return compare(new Date(longDate1), -1, new Date(longDate2), -1);
     }
     
     @GET
@@ -176,34 +103,25 @@ public class DailySalesHeatMapFacadeREST {
             @PathParam("productTypeId1") Integer productTypeId1,
             @PathParam("productTypeId2") Integer productTypeId2
     ) {
-        Date date1 = new Date(longDate1);
-        Date date2 = new Date(longDate2);
-        
-        HashMap<String, Long> resultMap1;
-        HashMap<String, Long> resultMap2;
-        if (productTypeId1 == -1){
-            resultMap1 = runBaseQuery(date1);
-        }
-        else {
-            resultMap1 = runProductTypeQuery(date1, productTypeId1);
-        }
-        if (productTypeId2 == -1){
-            resultMap2 = runBaseQuery(date2);
-        }
-        else {
-            resultMap2 = runProductTypeQuery(date2, productTypeId2);
-        }
-        
-        
+        return compare(new Date(longDate1), productTypeId1, new Date(longDate2), productTypeId2);
+    }
+
+    /**
+     * Difference per state between the months of date1 and date2, read from
+     * the monthly matrix held by the DailySalesCube
+     */
+    private List<HeatMapQuantity> compare(Date date1, int productTypeId1, Date date2, int productTypeId2) {
+        long DIFF, START_TIME = System.currentTimeMillis();
+        long[] month1 = cube.findMonthStates(date1, productTypeId1);
+        long[] month2 = cube.findMonthStates(date2, productTypeId2);
         
         List<HeatMapQuantity> results = new ArrayList<>();
-        for(String state : Region.ALL_STATES) {
-            Long v1 = resultMap1.get(state);
-            if (v1 == null) v1 = 0l;
-            Long v2 = resultMap2.get(state);
-            if (v2 == null) v2 = 0l;
-            results.add( new HeatMapQuantity(v1-v2,state,Region.getRegionName(state)));
+        for (int s = 0; s < Region.ALL_STATES.length; s++) {
+            String state = Region.ALL_STATES[s];
+            results.add( new HeatMapQuantity(month1[s]-month2[s],state,Region.getRegionName(state)));
         }
+        DIFF = System.currentTimeMillis() - START_TIME;
+        System.out.println("    TOTAL TIME = "+DIFF+"ms");
         return results;
-    }    
+    }
 }
@@ -0,0 +1,293 @@
+/*
+ * Copyright (c) 2008, 2011 Oracle and/or its affiliates.
+ * All rights reserved. Use is subject to license terms.
+ *
+ * This file is available and licensed under the following license:
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  - Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *  - Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in
+ *    the documentation and/or other materials provided with the distribution.
+ *  - Neither the name of Oracle Corporation nor the names of its
+ *    contributors may be used to endorse or promote products derived
+ *    from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.javafx.experiments.dataapp.server.service;
+
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.TimeZone;
+
+/**
+ * Running totals of cost, sales and units over the rows of the DailySalesCube,
+ * one snapshot per day bucketed by region and product type and by region and
+ * state. The sum over any run of whole days is then the difference of two
+ * snapshots, whatever the number of days in between.
+ * <p/>
+ * A day here is a run of consecutive rows sharing the same date, rows are
+ * added in dailySalesId order and the last day stays open until a row with a
+ * different date arrives.
+ * <p/>
+ * Days are also grouped into calendar weeks, months and quarters so a long
+ * series can be summed a week, month or quarter at a time, each one again as
+ * the difference of two snapshots.
+ */
+final class DailySalesPrefixIndex {
+    private static final int COST = 0;
+    private static final int SALES = 1;
+    private static final int UNITS = 2;
+    private static final int VALUES = 3;
+
+    static final int DAY = 0;
+    static final int WEEK = 1;
+    static final int MONTH = 2;
+    static final int QUARTER = 3;
+    static final String[] TIER_NAMES = {"DAY", "WEEK", "MONTH", "QUARTER"};
+
+    private final int regionCount;
+    private final int typeCount;
+    private final int stateCount;
+    private final int typeStride;
+    private final int stateStride;
+
+    // first row and date of every day
+    private int[] dayStart = new int[512];
+    private int[] dayDate = new int[512];
+    private int[] dayMonth = new int[512];
+    private int days;
+    private int rows;
+    // true while every day is dated after the one before, dates can then be binary searched
+    private boolean ascending = true;
+    private final Calendar utc = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+
+    // prefix k holds the totals of all the days before day k, prefix days holds everything
+    private double[] regionTypePrefix;
+    private double[] regionStatePrefix;
+
+    DailySalesPrefixIndex(int regionCount, int typeCount, int stateCount) {
+        this.regionCount = regionCount;
+        this.typeCount = typeCount;
+        this.stateCount = stateCount;
+        this.typeStride = regionCount * typeCount * VALUES;
+        this.stateStride = regionCount * stateCount * VALUES;
+        regionTypePrefix = new double[(dayStart.length + 1) * typeStride];
+        regionStatePrefix = new double[(dayStart.length + 1) * stateStride];
+    }
+
+    /**
+     * Add the next row of the cube to the open day, or start a new day when
+     * the date changes
+     */
+    void add(int row, int date, int region, int type, int state, int quantity, double cost, double sales) {
+        if (days == 0 || dayDate[days - 1] != date) {
+            startDay(row, date);
+        }
+        int t = days * typeStride + (region * typeCount + type) * VALUES;
+        regionTypePrefix[t + COST] += cost;
+        regionTypePrefix[t + SALES] += sales;
+        regionTypePrefix[t + UNITS] += quantity;
+        if (state >= 0) {
+            int s = days * stateStride + (region * stateCount + state) * VALUES;
+            regionStatePrefix[s + COST] += cost;
+            regionStatePrefix[s + SALES] += sales;
+            regionStatePrefix[s + UNITS] += quantity;
+        }
+        rows = row + 1;
+    }
+
+    private void startDay(int row, int date) {
+        if (days == dayStart.length) {
+            int newLength = dayStart.length * 2;
+            dayStart = Arrays.copyOf(dayStart, newLength);
+            dayDate = Arrays.copyOf(dayDate, newLength);
+            dayMonth = Arrays.copyOf(dayMonth, newLength);
+            regionTypePrefix = Arrays.copyOf(regionTypePrefix, (newLength + 1) * typeStride);
+            regionStatePrefix = Arrays.copyOf(regionStatePrefix, (newLength + 1) * stateStride);
+        }
+        if (days > 0 && date < dayDate[days - 1]) {
+            ascending = false;
+        }
+        dayStart[days] = row;
+        dayDate[days] = date;
+        utc.setTimeInMillis(date * DailySalesCube.MILLIS_PER_DAY);
+        dayMonth[days] = utc.get(Calendar.YEAR) * 12 + utc.get(Calendar.MONTH);
+        days++;
+        // the new day starts from the totals of everything before it
+        System.arraycopy(regionTypePrefix, (days - 1) * typeStride, regionTypePrefix, days * typeStride, typeStride);
+        System.arraycopy(regionStatePrefix, (days - 1) * stateStride, regionStatePrefix, days * stateStride, stateStride);
+    }
+
+    /**
+     * First day that starts at or after the given row
+     */
+    int firstDayFrom(int row) {
+        int low = 0, high = days;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (dayStart[mid] < row) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * One past the last day that ends at or before the given (exclusive) row
+     */
+    int lastDayBefore(int row) {
+        int low = 0, high = days;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (dayEnd(mid) <= row) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Day holding the given row
+     */
+    int dayOf(int row) {
+        return firstDayFrom(row + 1) - 1;
+    }
+
+    int dayStart(int day) {
+        return dayStart[day];
+    }
+
+    int dayEnd(int day) {
+        return day + 1 < days ? dayStart[day + 1] : rows;
+    }
+
+    int dayDate(int day) {
+        return dayDate[day];
+    }
+
+    /**
+     * The week, month or quarter the day falls in, as a number that increases
+     * with the date
+     */
+    int bucketOf(int day, int tier) {
+        switch (tier) {
+            case WEEK:
+                // 1970-01-01 was a Thursday, weeks start on Monday
+                return (dayDate[day] + 3) / 7;
+            case MONTH:
+                return dayMonth[day];
+            case QUARTER:
+                return dayMonth[day] / 3;
+            default:
+                return dayDate[day];
+        }
+    }
+
+    /**
+     * Epoch day the given week, month or quarter starts on, the bucket after
+     * it starts where it ends
+     */
+    static int bucketStartDate(int bucket, int tier) {
+        switch (tier) {
+            case WEEK:
+                return bucket * 7 - 3;
+            case MONTH:
+            case QUARTER:
+                int month = tier == MONTH ? bucket : bucket * 3;
+                Calendar c = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+                c.clear();
+                c.set(month / 12, month % 12, 1);
+                return (int) (c.getTimeInMillis() / DailySalesCube.MILLIS_PER_DAY);
+            default:
+                return bucket;
+        }
+    }
+
+    boolean isAscending() {
+        return ascending;
+    }
+
+    /**
+     * First day dated on or after the given date, only meaningful when the
+     * days are ascending
+     */
+    int firstDayOnOrAfter(int date) {
+        int low = 0, high = days;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (dayDate[mid] < date) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Add the totals per product type of the days fromDay <= day < toDay
+     *
+     * @param region region to restrict to or -1 for all regions
+     */
+    void sumTypes(int fromDay, int toDay, int region, double[] cost, double[] sales, long[] units) {
+        int firstRegion = region == -1 ? 0 : region;
+        int lastRegion = region == -1 ? regionCount - 1 : region;
+        for (int r = firstRegion; r <= lastRegion; r++) {
+            for (int type = 0; type < typeCount; type++) {
+                int from = fromDay * typeStride + (r * typeCount + type) * VALUES;
+                int to = toDay * typeStride + (r * typeCount + type) * VALUES;
+                cost[type] += regionTypePrefix[to + COST] - regionTypePrefix[from + COST];
+                sales[type] += regionTypePrefix[to + SALES] - regionTypePrefix[from + SALES];
+                units[type] += (long) (regionTypePrefix[to + UNITS] - regionTypePrefix[from + UNITS]);
+            }
+        }
+    }
+
+    /**
+     * Add the totals per region of the days fromDay <= day < toDay
+     */
+    void sumRegions(int fromDay, int toDay, double[] cost, double[] sales, long[] units) {
+        for (int r = 0; r < regionCount; r++) {
+            for (int type = 0; type < typeCount; type++) {
+                int from = fromDay * typeStride + (r * typeCount + type) * VALUES;
+                int to = toDay * typeStride + (r * typeCount + type) * VALUES;
+                cost[r] += regionTypePrefix[to + COST] - regionTypePrefix[from + COST];
+                sales[r] += regionTypePrefix[to + SALES] - regionTypePrefix[from + SALES];
+                units[r] += (long) (regionTypePrefix[to + UNITS] - regionTypePrefix[from + UNITS]);
+            }
+        }
+    }
+
+    /**
+     * Add the totals per state within a region of the days fromDay <= day < toDay
+     */
+    void sumStates(int fromDay, int toDay, int region, double[] cost, double[] sales, long[] units) {
+        for (int state = 0; state < stateCount; state++) {
+            int from = fromDay * stateStride + (region * stateCount + state) * VALUES;
+            int to = toDay * stateStride + (region * stateCount + state) * VALUES;
+            cost[state] += regionStatePrefix[to + COST] - regionStatePrefix[from + COST];
+            sales[state] += regionStatePrefix[to + SALES] - regionStatePrefix[from + SALES];
+            units[state] += (long) (regionStatePrefix[to + UNITS] - regionStatePrefix[from + UNITS]);
+        }
+    }
+}
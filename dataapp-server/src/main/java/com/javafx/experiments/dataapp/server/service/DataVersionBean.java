@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2008, 2011 Oracle and/or its affiliates.
+ * All rights reserved. Use is subject to license terms.
+ *
+ * This file is available and licensed under the following license:
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  - Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *  - Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in
+ *    the documentation and/or other materials provided with the distribution.
+ *  - Neither the name of Oracle Corporation nor the names of its
+ *    contributors may be used to endorse or promote products derived
+ *    from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.javafx.experiments.dataapp.server.service;
+
+import javax.annotation.Resource;
+import javax.ejb.EJB;
+import javax.ejb.Lock;
+import javax.ejb.LockType;
+import javax.ejb.Singleton;
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+import javax.transaction.TransactionSynchronizationRegistry;
+import javax.ws.rs.core.EntityTag;
+import java.util.Date;
+
+/**
+ * Version stamps for the data behind the cacheable REST resources. The history
+ * version is bumped when DailySalesGenerator rolls a day over, the reference
+ * version follows the DimensionCache. Both include the server start time so a
+ * restart against a reloaded database never matches an old tag.
+ */
+@Singleton
+@Lock(LockType.READ)
+public class DataVersionBean {
+    @EJB
+    private DimensionCacheBean dimensionCache;
+
+    @Resource
+    private TransactionSynchronizationRegistry transactionRegistry;
+
+    private final long startTime = System.currentTimeMillis();
+    private volatile int historyVersion;
+    private volatile long historyModified = startTime;
+
+    /**
+     * Called once new DailySales rows have been written, the new tag is only
+     * handed out after the transaction writing them has committed
+     */
+    public void historyChanged() {
+        if (transactionRegistry.getTransactionKey() == null) {
+            bumpHistory();
+            return;
+        }
+        transactionRegistry.registerInterposedSynchronization(new Synchronization() {
+            @Override
+            public void beforeCompletion() {
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (status == Status.STATUS_COMMITTED) {
+                    bumpHistory();
+                }
+            }
+        });
+    }
+
+    private synchronized void bumpHistory() {
+        historyVersion++;
+        historyModified = System.currentTimeMillis();
+    }
+
+    public EntityTag getHistoryTag() {
+        return new EntityTag("h" + Long.toString(startTime, 36) + "-" + historyVersion, true);
+    }
+
+    public Date getHistoryModified() {
+        return new Date(historyModified);
+    }
+
+    public EntityTag getReferenceTag() {
+        return new EntityTag("r" + Long.toString(startTime, 36) + "-" + dimensionCache.getCache().getVersion(), true);
+    }
+
+    public Date getReferenceModified() {
+        return new Date(Math.max(startTime, dimensionCache.getCache().getLoadedAt()));
+    }
+}
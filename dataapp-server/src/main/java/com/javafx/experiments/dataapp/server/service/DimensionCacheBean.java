@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2008, 2011 Oracle and/or its affiliates.
+ * All rights reserved. Use is subject to license terms.
+ *
+ * This file is available and licensed under the following license:
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  - Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *  - Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in
+ *    the documentation and/or other materials provided with the distribution.
+ *  - Neither the name of Oracle Corporation nor the names of its
+ *    contributors may be used to endorse or promote products derived
+ *    from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.javafx.experiments.dataapp.server.service;
+
+import com.javafx.experiments.dataapp.simulation.persistance.DimensionCache;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import javax.ejb.EJB;
+import javax.ejb.Lock;
+import javax.ejb.LockType;
+import javax.ejb.Singleton;
+import javax.ejb.Startup;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+import javax.transaction.TransactionSynchronizationRegistry;
+import java.util.concurrent.Callable;
+
+/**
+ * Application wide DimensionCache shared by the REST facades and the simulation
+ */
+@Singleton
+@Startup
+@Lock(LockType.READ)
+public class DimensionCacheBean {
+    @PersistenceContext(unitName = "DataAppLibraryPU")
+    private EntityManager em;
+
+    @EJB
+    private AsyncTaskBean asyncTask;
+
+    @Resource
+    private TransactionSynchronizationRegistry transactionRegistry;
+
+    private DimensionCache cache;
+
+    @PostConstruct
+    public void load() {
+        cache = new DimensionCache(em);
+        cache.refresh();
+    }
+
+    public DimensionCache getCache() {
+        return cache;
+    }
+
+    /**
+     * Reload the dimension tables now, writers of ProductType, Product, Region
+     * or DiscountRate rows call dimensionsChanged() instead
+     */
+    public void refresh() {
+        cache.refresh();
+    }
+
+    /**
+     * Called by FullProductListingFacadeREST, the only server path writing
+     * dimension rows, the cache is reloaded, and so the reference tag bumped,
+     * once the transaction writing them has committed. Rows the loader adds
+     * are picked up by DimensionCache's refresh on a lookup miss instead.
+     */
+    public void dimensionsChanged() {
+        if (transactionRegistry.getTransactionKey() == null) {
+            refresh();
+            return;
+        }
+        transactionRegistry.registerInterposedSynchronization(new Synchronization() {
+            @Override
+            public void beforeCompletion() {
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (status == Status.STATUS_COMMITTED) {
+                    asyncTask.submit(new Callable<Void>() {
+                        @Override
+                        public Void call() {
+                            refresh();
+                            return null;
+                        }
+                    });
+                }
+            }
+        });
+    }
+}
@@ -33,6 +33,7 @@ package com.javafx.experiments.dataapp.server.service;
 
 import com.javafx.experiments.dataapp.model.FullProductListing;
 import java.util.List;
+import javax.ejb.EJB;
 import javax.ejb.Stateless;
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
@@ -51,6 +52,9 @@ public class FullProductListingFacadeREST extends AbstractFacade<FullProductList
     @PersistenceContext(unitName = "DataAppLibraryPU")
     private EntityManager em;
 
+    @EJB
+    private DimensionCacheBean dimensionCache;
+
     public FullProductListingFacadeREST() {
         super(FullProductListing.class);
     }
@@ -60,6 +64,7 @@ public class FullProductListingFacadeREST extends AbstractFacade<FullProductList
     @Consumes({"application/xml", "application/json"})
     public void create(FullProductListing entity) {
         super.create(entity);
+        dimensionCache.dimensionsChanged();
     }
 
     @PUT
@@ -67,12 +72,14 @@ public class FullProductListingFacadeREST extends AbstractFacade<FullProductList
     @Consumes({"application/xml", "application/json"})
     public void edit(FullProductListing entity) {
         super.edit(entity);
+        dimensionCache.dimensionsChanged();
     }
 
     @DELETE
     @Path("{id}")
     public void remove(@PathParam("id") Integer id) {
         super.remove(super.find(id));
+        dimensionCache.dimensionsChanged();
     }
 
     @GET
@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2008, 2011 Oracle and/or its affiliates.
+ * All rights reserved. Use is subject to license terms.
+ *
+ * This file is available and licensed under the following license:
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  - Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *  - Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in
+ *    the documentation and/or other materials provided with the distribution.
+ *  - Neither the name of Oracle Corporation nor the names of its
+ *    contributors may be used to endorse or promote products derived
+ *    from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.javafx.experiments.dataapp.server.service;
+
+import com.javafx.experiments.dataapp.model.transit.HeatMapMonths;
+
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.TimeZone;
+
+/**
+ * Quantities sold per calendar month, product type and state over the rows of
+ * the DailySalesCube, held as long[month][productType][state]. Product type 0
+ * holds the totals of all the product types, states are indexed like
+ * Region.ALL_STATES, months are numbered as in HeatMapMonths.monthOf.
+ * <p/>
+ * A heat map compares two months, with the matrix that is two array lookups
+ * instead of two group by queries over DAILY_SALES.
+ */
+final class HeatMapMatrix {
+    static final int ALL_TYPES = 0;
+
+    private final int typeCount;
+    private final int stateCount;
+
+    // months[m] covers the month firstMonth + m, null while no rows fall in it
+    private long[][][] months = new long[0][][];
+    private int firstMonth;
+
+    // rows arrive in date order, so the month of the last date is nearly always the next one
+    private int lastDate = Integer.MIN_VALUE;
+    private int lastMonth;
+    private final Calendar utc = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+
+    HeatMapMatrix(int typeCount, int stateCount) {
+        this.typeCount = typeCount;
+        this.stateCount = stateCount;
+    }
+
+    /**
+     * Add the quantity of one row dated on the given epoch day
+     */
+    void add(int date, int type, int state, int quantity) {
+        if (state < 0) return;
+        if (date != lastDate) {
+            utc.setTimeInMillis(date * DailySalesCube.MILLIS_PER_DAY);
+            lastMonth = utc.get(Calendar.YEAR) * 12 + utc.get(Calendar.MONTH);
+            lastDate = date;
+        }
+        long[][] month = month(lastMonth);
+        month[ALL_TYPES][state] += quantity;
+        if (type > 0 && type < typeCount) {
+            month[type][state] += quantity;
+        }
+    }
+
+    /**
+     * Copy of the quantities per state for the month and product type, zeros
+     * when nothing was sold
+     */
+    long[] get(int month, int type) {
+        int m = month - firstMonth;
+        if (m < 0 || m >= months.length || months[m] == null || type < 0 || type >= typeCount) {
+            return new long[stateCount];
+        }
+        return months[m][type].clone();
+    }
+
+    /**
+     * Every month of the product type in one block, from the first month with
+     * sales to the last
+     */
+    HeatMapMonths toMonths(int type, String[] states) {
+        HeatMapMonths result = new HeatMapMonths();
+        int monthCount = months.length;
+        while (monthCount > 0 && months[monthCount - 1] == null) monthCount--;
+        long[] quantities = new long[monthCount * stateCount];
+        if (type >= 0 && type < typeCount) {
+            for (int m = 0; m < monthCount; m++) {
+                if (months[m] == null) continue;
+                System.arraycopy(months[m][type], 0, quantities, m * stateCount, stateCount);
+            }
+        }
+        result.setFirstMonth(firstMonth);
+        result.setMonthCount(monthCount);
+        result.setStates(states);
+        result.setQuantities(quantities);
+        return result;
+    }
+
+    private long[][] month(int month) {
+        if (months.length == 0) {
+            firstMonth = month;
+            months = new long[1][][];
+        } else if (month < firstMonth) {
+            long[][][] grown = new long[months.length + firstMonth - month][][];
+            System.arraycopy(months, 0, grown, firstMonth - month, months.length);
+            months = grown;
+            firstMonth = month;
+        } else if (month - firstMonth >= months.length) {
+            months = Arrays.copyOf(months, Math.max(month - firstMonth + 1, months.length * 2));
+        }
+        int m = month - firstMonth;
+        if (months[m] == null) {
+            months[m] = new long[typeCount][stateCount];
+        }
+        return months[m];
+    }
+}
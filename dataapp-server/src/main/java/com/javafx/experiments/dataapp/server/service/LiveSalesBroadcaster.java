@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2008, 2011 Oracle and/or its affiliates.
+ * All rights reserved. Use is subject to license terms.
+ *
+ * This file is available and licensed under the following license:
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  - Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *  - Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in
+ *    the documentation and/or other materials provided with the distribution.
+ *  - Neither the name of Oracle Corporation nor the names of its
+ *    contributors may be used to endorse or promote products derived
+ *    from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.javafx.experiments.dataapp.server.service;
+
+import com.javafx.experiments.dataapp.model.LiveSalesList;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Fans the new live sales out to the LiveSalesSubscribers. Subscribers are
+ * grouped by their region and product type filters, so each sale is looked at
+ * once and goes straight to the at most four groups it matches, whatever the
+ * number of subscribers, and its event is encoded once for all of them.
+ */
+class LiveSalesBroadcaster {
+    private final ConcurrentMap<String, List<LiveSalesSubscriber>> byFilter = new ConcurrentHashMap<>();
+
+    void add(LiveSalesSubscriber subscriber) {
+        String key = key(subscriber.getRegion(), subscriber.getProductTypeId());
+        List<LiveSalesSubscriber> group = byFilter.get(key);
+        if (group == null) {
+            List<LiveSalesSubscriber> newGroup = new CopyOnWriteArrayList<>();
+            group = byFilter.putIfAbsent(key, newGroup);
+            if (group == null) group = newGroup;
+        }
+        group.add(subscriber);
+    }
+
+    void remove(LiveSalesSubscriber subscriber) {
+        List<LiveSalesSubscriber> group = byFilter.get(key(subscriber.getRegion(), subscriber.getProductTypeId()));
+        if (group != null) group.remove(subscriber);
+    }
+
+    /**
+     * Queue the sales, oldest first, for every subscriber they match
+     */
+    void broadcast(List<LiveSalesList> sales) {
+        if (byFilter.isEmpty()) return;
+        for (LiveSalesList sale : sales) {
+            byte[] event = LiveSalesSubscriber.toEvent(sale);
+            String region = sale.getRegion();
+            int productTypeId = sale.getProductTypeId() == null ? -1 : sale.getProductTypeId();
+            send(key(null, -1), event);
+            if (region != null) send(key(region, -1), event);
+            if (productTypeId > 0) send(key(null, productTypeId), event);
+            if (region != null && productTypeId > 0) send(key(region, productTypeId), event);
+        }
+    }
+
+    /**
+     * Ping every subscriber, dropping the ones that have gone away or stalled
+     */
+    void ping(long now) {
+        for (List<LiveSalesSubscriber> group : byFilter.values()) {
+            for (LiveSalesSubscriber subscriber : group) {
+                if (!subscriber.ping(now)) group.remove(subscriber);
+            }
+        }
+    }
+
+    private void send(String key, byte[] event) {
+        List<LiveSalesSubscriber> group = byFilter.get(key);
+        if (group == null) return;
+        for (LiveSalesSubscriber subscriber : group) {
+            if (!subscriber.offer(event)) group.remove(subscriber);
+        }
+    }
+
+    private static String key(String region, int productTypeId) {
+        return (region == null ? "" : region) + '|' + (productTypeId > 0 ? productTypeId : -1);
+    }
+}
@@ -0,0 +1,250 @@
+/*
+ * Copyright (c) 2008, 2011 Oracle and/or its affiliates.
+ * All rights reserved. Use is subject to license terms.
+ *
+ * This file is available and licensed under the following license:
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  - Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *  - Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in
+ *    the documentation and/or other materials provided with the distribution.
+ *  - Neither the name of Oracle Corporation nor the names of its
+ *    contributors may be used to endorse or promote products derived
+ *    from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.javafx.experiments.dataapp.server.service;
+
+import com.javafx.experiments.dataapp.model.LiveSalesList;
+import com.javafx.experiments.dataapp.simulation.persistance.LiveSalesBuffer;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import javax.ejb.EJB;
+import javax.ejb.Lock;
+import javax.ejb.LockType;
+import javax.ejb.Schedule;
+import javax.ejb.Singleton;
+import javax.ejb.Startup;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+import javax.transaction.TransactionSynchronizationRegistry;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.TimeoutHandler;
+import javax.ws.rs.core.GenericEntity;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Holds the LiveSalesBuffer of recent sales, filled by the SalesSimulator and
+ * warmed from the LIVE_SALES table on startup, and pushes the new sales to
+ * the clients connected to the LiveSalesStreamServlet. Once the simulator's
+ * transaction has committed the new sales are taken from the buffer once,
+ * whatever the number of clients, and handed to the LiveSalesBroadcaster which
+ * queues them for every subscriber whose filters they match. Parked long-poll
+ * requests are completed the same way.
+ */
+@Singleton
+@Startup
+@Lock(LockType.READ)
+public class LiveSalesHub {
+    @PersistenceContext(unitName = "DataAppLibraryPU")
+    private EntityManager em;
+
+    @EJB
+    private AsyncTaskBean asyncTask;
+
+    @Resource
+    private TransactionSynchronizationRegistry transactionRegistry;
+
+    private static final String WARM_QUERY = "select l from LiveSalesList l order by l.orderLineId desc";
+
+    private static final int BUFFER_CAPACITY = 4096;
+    // most sales sent to a subscriber resuming from an old orderLineId
+    private static final int MAX_BACKLOG = 500;
+
+    private final LiveSalesBuffer buffer = new LiveSalesBuffer(BUFFER_CAPACITY);
+
+    private final LiveSalesBroadcaster broadcaster = new LiveSalesBroadcaster();
+    private final List<LiveSalesWaiter> waiters = new CopyOnWriteArrayList<>();
+    // held while publishing and while a subscriber catches up, so each sale is queued once and in order
+    private final Object publishLock = new Object();
+    private volatile int lastPublished = -1;
+
+    @PostConstruct
+    public void load() {
+        List<LiveSalesList> recent = em.createQuery(WARM_QUERY, LiveSalesList.class)
+                .setMaxResults(buffer.getCapacity())
+                .getResultList();
+        for (int i = recent.size() - 1; i >= 0; i--) {
+            buffer.add(recent.get(i));
+        }
+        lastPublished = buffer.getLastOrderLineId();
+    }
+
+    public LiveSalesBuffer getBuffer() {
+        return buffer;
+    }
+
+    /**
+     * The latest sales after orderLineId matching the filters, newest first
+     *
+     * @param region region name or null for all regions
+     * @param productTypeId product type or -1 for all types
+     * @param orderLineId only sales after this one, -1 for all
+     */
+    public List<LiveSalesList> findRecent(String region, int productTypeId, int orderLineId, int max) {
+        return buffer.findRecent(region, productTypeId, orderLineId, max);
+    }
+
+    /**
+     * Called once SalesSimulator has written new sales, they are added to the
+     * buffer and pushed after the transaction writing them has committed
+     */
+    public void salesAdded(final List<LiveSalesList> sales) {
+        if (transactionRegistry.getTransactionKey() == null) {
+            addToBuffer(sales);
+            publishAsync();
+            return;
+        }
+        transactionRegistry.registerInterposedSynchronization(new Synchronization() {
+            @Override
+            public void beforeCompletion() {
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (status == Status.STATUS_COMMITTED) {
+                    addToBuffer(sales);
+                    publishAsync();
+                }
+            }
+        });
+    }
+
+    private void addToBuffer(List<LiveSalesList> sales) {
+        for (LiveSalesList sale : sales) {
+            buffer.add(sale);
+        }
+    }
+
+    /**
+     * Start streaming to the subscriber, first catching it up with the sales
+     * after its orderLineId when it is resuming. The catch up stops at the
+     * last published sale, the sales already in the buffer but not published
+     * yet reach the subscriber with the next publish().
+     */
+    public void subscribe(LiveSalesSubscriber subscriber) {
+        synchronized (publishLock) {
+            if (subscriber.getFrom() >= 0 && subscriber.getFrom() < lastPublished) {
+                List<LiveSalesList> backlog = findRecent(subscriber.getRegion(), subscriber.getProductTypeId(), subscriber.getFrom(), MAX_BACKLOG);
+                for (LiveSalesList sale : oldestFirst(backlog)) {
+                    if (sale.getOrderLineId() > lastPublished) break;
+                    if (!subscriber.offer(LiveSalesSubscriber.toEvent(sale))) return;
+                }
+            }
+            broadcaster.add(subscriber);
+        }
+    }
+
+    /**
+     * Answer the long-poll request with the sales after orderLineId matching
+     * the filters, straight away when there are some, otherwise once the
+     * simulator adds one or with an empty list once the timeout expires. No
+     * thread is held while the request waits.
+     */
+    public void park(AsyncResponse response, String region, int productTypeId, int orderLineId, int timeoutSeconds) {
+        final LiveSalesWaiter waiter = new LiveSalesWaiter(response, region, productTypeId, orderLineId);
+        synchronized (publishLock) {
+            if (resume(waiter)) return;
+            response.setTimeout(timeoutSeconds, TimeUnit.SECONDS);
+            response.setTimeoutHandler(new TimeoutHandler() {
+                @Override
+                public void handleTimeout(AsyncResponse asyncResponse) {
+                    waiters.remove(waiter);
+                    asyncResponse.resume(entity(new ArrayList<LiveSalesList>()));
+                }
+            });
+            waiters.add(waiter);
+        }
+    }
+
+    public void unsubscribe(LiveSalesSubscriber subscriber) {
+        broadcaster.remove(subscriber);
+    }
+
+    /**
+     * Keep idle connections from being closed by proxies and notice the
+     * clients that have gone away or stopped reading
+     */
+    @Schedule(second = "*/30", minute = "*", hour = "*", persistent = false)
+    public void ping() {
+        broadcaster.ping(System.currentTimeMillis());
+    }
+
+    private void publishAsync() {
+        asyncTask.submit(new Callable<Void>() {
+            @Override
+            public Void call() {
+                publish();
+                return null;
+            }
+        });
+    }
+
+    private void publish() {
+        synchronized (publishLock) {
+            List<LiveSalesList> rows = oldestFirst(findRecent(null, -1, lastPublished, buffer.getCapacity()));
+            if (rows.isEmpty()) return;
+            lastPublished = rows.get(rows.size() - 1).getOrderLineId();
+            broadcaster.broadcast(rows);
+            for (LiveSalesWaiter waiter : waiters) {
+                if (resume(waiter) || waiter.response.isDone()) {
+                    waiters.remove(waiter);
+                }
+            }
+        }
+    }
+
+    /**
+     * Complete the waiter if there are sales for it, returns false if it has
+     * to keep waiting
+     */
+    private boolean resume(LiveSalesWaiter waiter) {
+        List<LiveSalesList> sales = findRecent(waiter.region, waiter.productTypeId, waiter.orderLineId, MAX_BACKLOG);
+        if (sales.isEmpty()) return false;
+        waiter.response.resume(entity(sales));
+        return true;
+    }
+
+    private static GenericEntity<List<LiveSalesList>> entity(List<LiveSalesList> sales) {
+        return new GenericEntity<List<LiveSalesList>>(sales) {};
+    }
+
+    private static List<LiveSalesList> oldestFirst(List<LiveSalesList> sales) {
+        Collections.reverse(sales);
+        return sales;
+    }
+}
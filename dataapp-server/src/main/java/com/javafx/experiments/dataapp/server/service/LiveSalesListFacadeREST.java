@@ -32,24 +32,24 @@
 package com.javafx.experiments.dataapp.server.service;
 
 import com.javafx.experiments.dataapp.model.LiveSalesList;
-import com.javafx.experiments.dataapp.model.LiveSalesList_;
+import com.javafx.experiments.dataapp.model.transit.LiveSalesCodec;
 import java.util.List;
+import javax.ejb.EJB;
 import javax.ejb.Stateless;
 import javax.persistence.EntityManager;
-import javax.persistence.Parameter;
 import javax.persistence.PersistenceContext;
-import javax.persistence.TypedQuery;
-import javax.persistence.criteria.CriteriaBuilder;
-import javax.persistence.criteria.CriteriaQuery;
-import javax.persistence.criteria.Root;
 import javax.ws.rs.Consumes;
 import javax.ws.rs.DELETE;
+import javax.ws.rs.DefaultValue;
 import javax.ws.rs.GET;
 import javax.ws.rs.POST;
 import javax.ws.rs.PUT;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
 
 @Stateless
 @Path("com.javafx.experiments.dataapp.model.livesaleslist")
@@ -57,6 +57,14 @@ public class LiveSalesListFacadeREST extends AbstractFacade<LiveSalesList> {
     @PersistenceContext(unitName = "DataAppLibraryPU")
     private EntityManager em;
 
+    @EJB
+    private LiveSalesHub liveSalesHub;
+
+    // the recent sales come from the LiveSalesBuffer held by the LiveSalesHub, not the table
+    private static final int MAX_RECENT = 500;
+    // longest a long-poll request is parked for, in seconds
+    private static final int MAX_WAIT = 120;
+
     public LiveSalesListFacadeREST() {
         super(LiveSalesList.class);
     }
@@ -97,113 +105,72 @@ public class LiveSalesListFacadeREST extends AbstractFacade<LiveSalesList> {
     }
     
     @GET
-    @Produces({"application/xml", "application/json"})
+    @Produces({"application/xml", "application/json", LiveSalesCodec.MEDIA_TYPE})
     @Path("/recent/")
     public List<LiveSalesList> findRecent() {
-        CriteriaQuery<LiveSalesList> cq = getEntityManager().getCriteriaBuilder().createQuery(LiveSalesList.class);
-        cq.select(cq.from(LiveSalesList.class));
-        TypedQuery<LiveSalesList> q = getEntityManager().createQuery(cq);
-        q.setMaxResults(500);
-        return q.getResultList();
+        return liveSalesHub.findRecent(null, -1, -1, MAX_RECENT);
     }
     
     @GET
-    @Produces({"application/xml", "application/json"})
+    @Produces({"application/xml", "application/json", LiveSalesCodec.MEDIA_TYPE})
     @Path("/recent/region/{regionName}")
     public List<LiveSalesList> findRecentRegion(@PathParam("regionName") String regionName) {
-        CriteriaBuilder cb = getEntityManager().getCriteriaBuilder();
-        CriteriaQuery<LiveSalesList> cq = cb.createQuery(LiveSalesList.class);
-        Root<LiveSalesList> liveSalesList = cq.from(LiveSalesList.class);
-        cq.select(liveSalesList);
-        cq.where(cb.equal(liveSalesList.get(LiveSalesList_.region), regionName));
-        TypedQuery<LiveSalesList> q = getEntityManager().createQuery(cq);
-        q.setMaxResults(500);
-        return q.getResultList();
+        return liveSalesHub.findRecent(regionName, -1, -1, MAX_RECENT);
     }
     
     @GET
-    @Produces({"application/xml", "application/json"})
+    @Produces({"application/xml", "application/json", LiveSalesCodec.MEDIA_TYPE})
     @Path("/recent/region/{regionName}/{orderLineId}")
     public List<LiveSalesList> findRecentRegionFrom(@PathParam("regionName") String regionName, @PathParam("orderLineId") Integer orderLineId) {
-        CriteriaBuilder cb = getEntityManager().getCriteriaBuilder();
-        CriteriaQuery<LiveSalesList> cq = cb.createQuery(LiveSalesList.class);
-        Root<LiveSalesList> liveSalesList = cq.from(LiveSalesList.class);
-        cq.select(liveSalesList);
-        cq.where(cb.and(
-            cb.equal(liveSalesList.get(LiveSalesList_.region), regionName),
-            cb.gt(liveSalesList.get(LiveSalesList_.orderLineId), orderLineId)
-        ));
-        TypedQuery<LiveSalesList> q = getEntityManager().createQuery(cq);
-        q.setMaxResults(500);
-        return q.getResultList();
+        return liveSalesHub.findRecent(regionName, -1, orderLineId, MAX_RECENT);
     }    
     
     @GET
-    @Produces({"application/xml", "application/json"})
+    @Produces({"application/xml", "application/json", LiveSalesCodec.MEDIA_TYPE})
     @Path("/recent/producttype/{id}")
     public List<LiveSalesList> findRecentProductType(@PathParam("id") Integer productTypeId) {
-        CriteriaBuilder cb = getEntityManager().getCriteriaBuilder();
-        CriteriaQuery<LiveSalesList> cq = cb.createQuery(LiveSalesList.class);
-        Root<LiveSalesList> liveSalesList = cq.from(LiveSalesList.class);
-        cq.select(liveSalesList);
-        cq.where(cb.equal(liveSalesList.get(LiveSalesList_.productTypeId), productTypeId));
-        TypedQuery<LiveSalesList> q = getEntityManager().createQuery(cq);
-        q.setMaxResults(500);
-        return q.getResultList();
+        return liveSalesHub.findRecent(null, productTypeId, -1, MAX_RECENT);
     }
     
     @GET
-    @Produces({"application/xml", "application/json"})
+    @Produces({"application/xml", "application/json", LiveSalesCodec.MEDIA_TYPE})
     @Path("/recent/producttype/{id}/{orderLineId}")
     public List<LiveSalesList> findRecentProductTypeFrom(@PathParam("id") Integer productTypeId, @PathParam("orderLineId") Integer orderLineId) {
-        CriteriaBuilder cb = getEntityManager().getCriteriaBuilder();
-        CriteriaQuery<LiveSalesList> cq = cb.createQuery(LiveSalesList.class);
-        Root<LiveSalesList> liveSalesList = cq.from(LiveSalesList.class);
-        cq.select(liveSalesList);
-        cq.where(cb.and(
-            cb.equal(liveSalesList.get(LiveSalesList_.productTypeId), productTypeId),
-            cb.gt(liveSalesList.get(LiveSalesList_.orderLineId), orderLineId)
-        ));
-        TypedQuery<LiveSalesList> q = getEntityManager().createQuery(cq);
-        q.setMaxResults(500);
-        return q.getResultList();
+        return liveSalesHub.findRecent(null, productTypeId, orderLineId, MAX_RECENT);
     }    
     
     @GET
-    @Produces({"application/xml", "application/json"})
+    @Produces({"application/xml", "application/json", LiveSalesCodec.MEDIA_TYPE})
     @Path("/recent/region/producttype/{regionName}/{productTypeId}")
     public List<LiveSalesList> findRecentRegionProductType(@PathParam("regionName") String regionName, @PathParam("productTypeId") Integer productTypeId) {
-        CriteriaBuilder cb = getEntityManager().getCriteriaBuilder();
-        CriteriaQuery<LiveSalesList> cq = cb.createQuery(LiveSalesList.class);
-        Root<LiveSalesList> liveSalesList = cq.from(LiveSalesList.class);
-        cq.select(liveSalesList);
-        cq.where(cb.and(
-                cb.equal(liveSalesList.get(LiveSalesList_.productTypeId), productTypeId), 
-                cb.equal(liveSalesList.get(LiveSalesList_.region), regionName)
-        ));
-        TypedQuery<LiveSalesList> q = getEntityManager().createQuery(cq);
-        q.setMaxResults(500);
-        return q.getResultList();
+        return liveSalesHub.findRecent(regionName, productTypeId, -1, MAX_RECENT);
     }
     
     @GET
-    @Produces({"application/xml", "application/json"})
+    @Produces({"application/xml", "application/json", LiveSalesCodec.MEDIA_TYPE})
     @Path("/recent/region/producttype/{regionName}/{productTypeId}/{orderLineId}")
     public List<LiveSalesList> findRecentRegionProductTypeFrom(@PathParam("regionName") String regionName, @PathParam("productTypeId") Integer productTypeId, @PathParam("orderLineId") Integer orderLineId) {
-        CriteriaBuilder cb = getEntityManager().getCriteriaBuilder();
-        CriteriaQuery<LiveSalesList> cq = cb.createQuery(LiveSalesList.class);
-        Root<LiveSalesList> liveSalesList = cq.from(LiveSalesList.class);
-        cq.select(liveSalesList);
-        cq.where(cb.and(
-            cb.equal(liveSalesList.get(LiveSalesList_.productTypeId), productTypeId),
-            cb.equal(liveSalesList.get(LiveSalesList_.region), regionName),
-            cb.gt(liveSalesList.get(LiveSalesList_.orderLineId), orderLineId)
-        ));
-        TypedQuery<LiveSalesList> q = getEntityManager().createQuery(cq);
-        q.setMaxResults(500);
-        return q.getResultList();
+        return liveSalesHub.findRecent(regionName, productTypeId, orderLineId, MAX_RECENT);
     }    
 
+    /**
+     * Long-poll variant of the *From queries, parks until there is a sale after
+     * orderLineId matching the optional filters or the timeout, in seconds,
+     * expires. For clients that cannot use the /stream/livesales events.
+     */
+    @GET
+    @Produces({"application/xml", "application/json", LiveSalesCodec.MEDIA_TYPE})
+    @Path("/wait/{orderLineId}")
+    public void waitFrom(
+            @Suspended AsyncResponse response,
+            @PathParam("orderLineId") Integer orderLineId,
+            @QueryParam("region") String regionName,
+            @QueryParam("productTypeId") @DefaultValue("-1") Integer productTypeId,
+            @QueryParam("timeout") @DefaultValue("30") Integer timeout
+    ) {
+        liveSalesHub.park(response, regionName, productTypeId, orderLineId, Math.max(1, Math.min(timeout, MAX_WAIT)));
+    }
+
     @GET
     @Path("{from}/{to}")
     @Produces({"application/xml", "application/json"})
@@ -213,12 +180,9 @@ public class LiveSalesListFacadeREST extends AbstractFacade<LiveSalesList> {
 
     @GET
     @Path("/date/{from}")
-    @Produces({"application/xml", "application/json"})
+    @Produces({"application/xml", "application/json", LiveSalesCodec.MEDIA_TYPE})
     public List<LiveSalesList> findFrom(@PathParam("from") Integer from) {
-        TypedQuery<LiveSalesList> q = getEntityManager().createNamedQuery("LiveSalesList.findFromOrderLineId", LiveSalesList.class);
-        Parameter<Integer> p = q.getParameter("orderLineId", Integer.class);
-        q.setParameter(p, from);
-        return q.getResultList();
+        return liveSalesHub.findRecent(null, -1, from, liveSalesHub.getBuffer().getCapacity());
     }
     
     @GET
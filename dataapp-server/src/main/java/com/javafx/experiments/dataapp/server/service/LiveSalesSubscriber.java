@@ -0,0 +1,206 @@
+/*
+ * Copyright (c) 2008, 2011 Oracle and/or its affiliates.
+ * All rights reserved. Use is subject to license terms.
+ *
+ * This file is available and licensed under the following license:
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  - Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *  - Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in
+ *    the documentation and/or other materials provided with the distribution.
+ *  - Neither the name of Oracle Corporation nor the names of its
+ *    contributors may be used to endorse or promote products derived
+ *    from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.javafx.experiments.dataapp.server.service;
+
+import com.javafx.experiments.dataapp.model.LiveSalesList;
+
+import javax.json.Json;
+import javax.json.JsonObjectBuilder;
+import javax.servlet.AsyncContext;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+
+/**
+ * One client of the LiveSalesStreamServlet, the sales it has asked for are
+ * written to its response as Server-Sent Events, one "sale" event per sale
+ * with the orderLineId as the event id so a reconnecting client can resume.
+ * <p/>
+ * Events are queued and written with non-blocking IO as the client reads
+ * them, so a slow client never holds up the LiveSalesBroadcaster. A client
+ * that falls MAX_QUEUED events behind, or reads nothing for STALL_TIMEOUT, is
+ * dropped; its EventSource reconnects with the Last-Event-ID and catches up
+ * from the LiveSalesBuffer.
+ */
+public class LiveSalesSubscriber implements WriteListener {
+    static final int MAX_QUEUED = 1024;
+    static final long STALL_TIMEOUT = 60000;
+
+    private static final byte[] PING = ": ping\n\n".getBytes(StandardCharsets.UTF_8);
+
+    private final AsyncContext async;
+    private final ServletOutputStream out;
+    private final String region;
+    private final int productTypeId;
+    private final int from;
+    private final ArrayDeque<byte[]> queue = new ArrayDeque<>();
+    private boolean closed;
+    // when the queue last stopped draining, -1 while the client keeps up
+    private long stalledSince = -1;
+
+    /**
+     * @param region region name or null for all regions
+     * @param productTypeId product type or -1 for all types
+     * @param from orderLineId the client already has, or -1 for only new sales
+     */
+    public LiveSalesSubscriber(AsyncContext async, String region, int productTypeId, int from) throws IOException {
+        this.async = async;
+        this.out = async.getResponse().getOutputStream();
+        this.region = region;
+        this.productTypeId = productTypeId;
+        this.from = from;
+    }
+
+    /**
+     * Switch the response to non-blocking writes, called once before the
+     * subscriber is handed to LiveSalesHub
+     */
+    public void start() {
+        out.setWriteListener(this);
+    }
+
+    public String getRegion() {
+        return region;
+    }
+
+    public int getProductTypeId() {
+        return productTypeId;
+    }
+
+    public int getFrom() {
+        return from;
+    }
+
+    /**
+     * Queue an event made by toEvent, returns false once the client has gone
+     * away or has been dropped for falling too far behind
+     */
+    synchronized boolean offer(byte[] event) {
+        if (closed) return false;
+        if (queue.size() >= MAX_QUEUED) {
+            close();
+            return false;
+        }
+        queue.add(event);
+        drain();
+        return !closed;
+    }
+
+    /**
+     * Queue an SSE comment, returns false once the client has gone away or
+     * has not read anything for STALL_TIMEOUT
+     */
+    synchronized boolean ping(long now) {
+        if (stalledSince >= 0 && now - stalledSince > STALL_TIMEOUT) {
+            close();
+            return false;
+        }
+        return offer(PING);
+    }
+
+    @Override
+    public synchronized void onWritePossible() {
+        drain();
+    }
+
+    @Override
+    public void onError(Throwable t) {
+        close();
+    }
+
+    synchronized void close() {
+        closed = true;
+        queue.clear();
+        try {
+            async.complete();
+        } catch (IllegalStateException e) {
+            // already completed
+        }
+    }
+
+    /**
+     * Write as much of the queue as the connection takes without blocking,
+     * the container calls onWritePossible when it takes more
+     */
+    private void drain() {
+        if (closed) return;
+        try {
+            boolean wrote = false;
+            while (!queue.isEmpty() && out.isReady()) {
+                out.write(queue.poll());
+                wrote = true;
+            }
+            if (queue.isEmpty()) {
+                stalledSince = -1;
+                if (wrote && out.isReady()) out.flush();
+            } else if (wrote || stalledSince < 0) {
+                stalledSince = System.currentTimeMillis();
+            }
+        } catch (IOException | IllegalStateException e) {
+            close();
+        }
+    }
+
+    /**
+     * The "sale" event of the sale, made once and shared by every subscriber
+     */
+    static byte[] toEvent(LiveSalesList sale) {
+        return ("id: " + sale.getOrderLineId() + "\nevent: sale\ndata: " + toJson(sale) + "\n\n").getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String toJson(LiveSalesList sale) {
+        JsonObjectBuilder json = Json.createObjectBuilder();
+        json.add("orderLineId", sale.getOrderLineId());
+        add(json, "product", sale.getProduct());
+        add(json, "type", sale.getType());
+        add(json, "subType", sale.getSubType());
+        add(json, "region", sale.getRegion());
+        add(json, "channel", sale.getChannel());
+        add(json, "dealer", sale.getDealer());
+        add(json, "salesman", sale.getSalesman());
+        add(json, "city", sale.getCity());
+        add(json, "state", sale.getState());
+        if (sale.getQuantity() != null) json.add("quantity", sale.getQuantity());
+        if (sale.getPrice() != null) json.add("price", sale.getPrice());
+        if (sale.getLatitude() != null) json.add("latitude", sale.getLatitude());
+        if (sale.getLongitude() != null) json.add("longitude", sale.getLongitude());
+        if (sale.getDate() != null) json.add("date", sale.getDate().getTime());
+        if (sale.getProductTypeId() != null) json.add("productTypeId", sale.getProductTypeId());
+        return json.build().toString();
+    }
+
+    private static void add(JsonObjectBuilder json, String name, String value) {
+        if (value != null) json.add(name, value);
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2008, 2011 Oracle and/or its affiliates.
+ * All rights reserved. Use is subject to license terms.
+ *
+ * This file is available and licensed under the following license:
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  - Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *  - Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in
+ *    the documentation and/or other materials provided with the distribution.
+ *  - Neither the name of Oracle Corporation nor the names of its
+ *    contributors may be used to endorse or promote products derived
+ *    from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.javafx.experiments.dataapp.server.service;
+
+import javax.ejb.EJBException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * Forks the independent parts of one request onto AsyncTaskBean and joins
+ * them again, keeping how long each branch took so the request can print them
+ * alongside its total time.
+ */
+final class ParallelBranches {
+    private final AsyncTaskBean asyncTask;
+    private final List<String> timings = new ArrayList<>();
+
+    ParallelBranches(AsyncTaskBean asyncTask) {
+        this.asyncTask = asyncTask;
+    }
+
+    /**
+     * Start a branch on another thread
+     */
+    <T> Future<T> fork(final String name, final Callable<T> task) {
+        return asyncTask.submit(new Callable<T>() {
+            @Override
+            public T call() throws Exception {
+                long START_TIME = System.currentTimeMillis();
+                try {
+                    return task.call();
+                } finally {
+                    record(name, System.currentTimeMillis() - START_TIME);
+                }
+            }
+        });
+    }
+
+    /**
+     * Wait for a branch, rethrowing whatever it failed with
+     */
+    <T> T join(Future<T> branch) {
+        try {
+            return branch.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new EJBException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new EJBException(e);
+        }
+    }
+
+    void printTimings() {
+        synchronized (timings) {
+            for (String timing : timings) {
+                System.out.println(timing);
+            }
+        }
+    }
+
+    private void record(String name, long time) {
+        synchronized (timings) {
+            timings.add("    " + name + " TIME = " + time + "ms");
+        }
+    }
+}
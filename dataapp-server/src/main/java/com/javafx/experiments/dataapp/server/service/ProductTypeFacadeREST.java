@@ -31,6 +31,7 @@
  */
 package com.javafx.experiments.dataapp.server.service;
 
+import javax.ejb.EJB;
 import javax.ejb.Stateless;
 import javax.ws.rs.Path;
 import com.javafx.experiments.dataapp.model.ProductType;
@@ -40,6 +41,10 @@ import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
 import javax.ws.rs.GET;
 import javax.ws.rs.Produces;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.GenericEntity;
+import javax.ws.rs.core.Request;
+import javax.ws.rs.core.Response;
 
 @Stateless
 @Path("com.javafx.experiments.dataapp.model.producttype")
@@ -47,6 +52,9 @@ public class ProductTypeFacadeREST extends AbstractFacade<ProductType> {
     @PersistenceContext(unitName = "DataAppLibraryPU")
     private EntityManager em;
 
+    @EJB
+    private DataVersionBean dataVersion;
+
     public ProductTypeFacadeREST() {
         super(ProductType.class);
     }
@@ -57,8 +65,14 @@ public class ProductTypeFacadeREST extends AbstractFacade<ProductType> {
     }
     
     @GET
-    @Override
     @Produces({"application/xml", "application/json"})
+    public Response findAll(@Context Request request) {
+        Response notModified = ConditionalGet.notModified(request, dataVersion.getReferenceTag(), dataVersion.getReferenceModified());
+        if (notModified != null) return notModified;
+        return ConditionalGet.ok(new GenericEntity<List<ProductType>>(findAll()) {}, dataVersion.getReferenceTag(), dataVersion.getReferenceModified());
+    }
+
+    @Override
     public List<ProductType> findAll() {
         return super.findAll();
     }
@@ -31,6 +31,7 @@
  */
 package com.javafx.experiments.dataapp.server.service;
 
+import javax.ejb.EJB;
 import javax.ejb.Stateless;
 import javax.ws.rs.Path;
 import com.javafx.experiments.dataapp.model.Region;
@@ -43,6 +44,10 @@ import javax.persistence.TypedQuery;
 import javax.ws.rs.GET;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.GenericEntity;
+import javax.ws.rs.core.Request;
+import javax.ws.rs.core.Response;
 
 @Stateless
 @Path("com.javafx.experiments.dataapp.model.region")
@@ -50,10 +55,19 @@ public class RegionFacadeREST {
     @PersistenceContext(unitName = "DataAppLibraryPU")
     private EntityManager em;
 
+    @EJB
+    private DataVersionBean dataVersion;
+
     @GET
     @Path("/international/{international}")
     @Produces({"application/xml", "application/json"})
-    public List<Region> findInternational(@PathParam("international") Short international) {
+    public Response findInternational(@Context Request request, @PathParam("international") Short international) {
+        Response notModified = ConditionalGet.notModified(request, dataVersion.getReferenceTag(), dataVersion.getReferenceModified());
+        if (notModified != null) return notModified;
+        return ConditionalGet.ok(new GenericEntity<List<Region>>(findInternational(international)) {}, dataVersion.getReferenceTag(), dataVersion.getReferenceModified());
+    }
+
+    public List<Region> findInternational(Short international) {
         TypedQuery<Region> q = em.createNamedQuery("Region.findByInternational", Region.class);
         Parameter<Short> p = q.getParameter("international", Short.class);
         q.setParameter(p, international);
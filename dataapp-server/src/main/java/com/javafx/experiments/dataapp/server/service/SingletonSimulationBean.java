@@ -33,12 +33,17 @@ package com.javafx.experiments.dataapp.server.service;
 
 import com.javafx.experiments.dataapp.simulation.DailySalesGenerator;
 import com.javafx.experiments.dataapp.simulation.SalesSimulator;
+import com.javafx.experiments.dataapp.simulation.SplitMix64Random;
 
 import javax.annotation.PostConstruct;
 import javax.annotation.Resource;
 import javax.ejb.*;
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+import javax.transaction.TransactionSynchronizationRegistry;
+import java.util.concurrent.Callable;
 
 @Singleton
 @LocalBean
@@ -47,6 +52,24 @@ public class SingletonSimulationBean {
     @PersistenceContext(unitName = "DataAppLibraryPU")
     private EntityManager em;
 
+    @EJB
+    DailySalesCube dailySalesCube;
+
+    @EJB
+    DimensionCacheBean dimensionCache;
+
+    @EJB
+    DataVersionBean dataVersion;
+
+    @EJB
+    LiveSalesHub liveSalesHub;
+
+    @EJB
+    AsyncTaskBean asyncTask;
+
+    @Resource
+    TransactionSynchronizationRegistry transactionRegistry;
+
     SalesSimulator sim;
     DailySalesGenerator hourlySalesGenerator;
 
@@ -58,8 +81,11 @@ public class SingletonSimulationBean {
 
     @PostConstruct
     public void applicationStartup() {
-        sim = new SalesSimulator(em);
-        hourlySalesGenerator = new DailySalesGenerator(em);
+        // -Ddataapp.seed replays the same sales
+        long seed = Long.getLong(SalesSimulator.SEED_PROPERTY, new SplitMix64Random().nextLong());
+        System.out.println("Simulation seed: " + seed);
+        sim = new SalesSimulator(em, dimensionCache.getCache(), new SplitMix64Random(seed));
+        hourlySalesGenerator = new DailySalesGenerator(em, dimensionCache.getCache());
 
         simulationTimer = timerService.createTimer(SalesSimulator.TIME_BETWEEN_SALES, SalesSimulator.TIME_BETWEEN_SALES, "Creating Auto Sales simulation");
         //run on startup, move over old sales
@@ -70,9 +96,46 @@ public class SingletonSimulationBean {
     public void timeout(Timer timer) {
         if (timer.equals(simulationTimer)) {
             sim.run();
+            liveSalesHub.salesAdded(sim.takeWrittenSales());
         } else if (timer.equals(hourlySalesTimer)) {
             hourlySalesGenerator.run();
+            historyAdded();
         }
     }
 
+    /**
+     * The cube reads the new DailySales rows from the database, so it is only
+     * appended to once the transaction writing them has committed, and the
+     * history tag is bumped once the cube has them
+     */
+    private void historyAdded() {
+        if (transactionRegistry.getTransactionKey() == null) {
+            appendHistory();
+            return;
+        }
+        transactionRegistry.registerInterposedSynchronization(new Synchronization() {
+            @Override
+            public void beforeCompletion() {
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (status == Status.STATUS_COMMITTED) {
+                    asyncTask.submit(new Callable<Void>() {
+                        @Override
+                        public Void call() {
+                            appendHistory();
+                            return null;
+                        }
+                    });
+                }
+            }
+        });
+    }
+
+    private void appendHistory() {
+        dailySalesCube.append();
+        dataVersion.historyChanged();
+    }
+
 }
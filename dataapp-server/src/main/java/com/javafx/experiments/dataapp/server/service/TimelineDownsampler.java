@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2008, 2011 Oracle and/or its affiliates.
+ * All rights reserved. Use is subject to license terms.
+ *
+ * This file is available and licensed under the following license:
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  - Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *  - Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in
+ *    the documentation and/or other materials provided with the distribution.
+ *  - Neither the name of Oracle Corporation nor the names of its
+ *    contributors may be used to endorse or promote products derived
+ *    from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.javafx.experiments.dataapp.server.service;
+
+import com.javafx.experiments.dataapp.model.transit.TransitCumulativeSales;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reduces the daily sales timeline to a fixed number of points with the
+ * Largest-Triangle-Three-Buckets algorithm, which keeps the points that matter
+ * most for the shape of the sales curve. Every point returned stands for a
+ * bucket of days and carries the dailySalesId range of the whole bucket, so a
+ * range picked on the downsampled timeline still covers every day in it.
+ */
+final class TimelineDownsampler {
+    private TimelineDownsampler() {
+    }
+
+    /**
+     * @param days   one entry per day, newest first as returned by findAll
+     * @param points the number of points wanted, at least 3
+     * @return at most points entries, newest first
+     */
+    static List<TransitCumulativeSales> downsample(List<TransitCumulativeSales> days, int points) {
+        int n = days.size();
+        if (points < 3 || points >= n) {
+            return days;
+        }
+        // work oldest first
+        TransitCumulativeSales[] data = new TransitCumulativeSales[n];
+        double[] x = new double[n];
+        double[] y = new double[n];
+        for (int i = 0; i < n; i++) {
+            data[i] = days.get(n - 1 - i);
+            x[i] = DailySalesCube.toEpochDay(data[i].getDate());
+            y[i] = data[i].getSales() == null ? 0 : data[i].getSales();
+        }
+
+        List<TransitCumulativeSales> result = new ArrayList<>(points);
+        result.add(data[0]);
+        double every = (double) (n - 2) / (points - 2);
+        int a = 0;
+        for (int i = 0; i < points - 2; i++) {
+            // average of the next bucket is the third corner of the triangle
+            int avgStart = (int) Math.floor((i + 1) * every) + 1;
+            int avgEnd = Math.min((int) Math.floor((i + 2) * every) + 1, n);
+            double avgX = 0, avgY = 0;
+            for (int j = avgStart; j < avgEnd; j++) {
+                avgX += x[j];
+                avgY += y[j];
+            }
+            avgX /= Math.max(1, avgEnd - avgStart);
+            avgY /= Math.max(1, avgEnd - avgStart);
+
+            int bucketStart = (int) Math.floor(i * every) + 1;
+            int bucketEnd = (int) Math.floor((i + 1) * every) + 1;
+            double maxArea = -1;
+            int picked = bucketStart;
+            for (int j = bucketStart; j < bucketEnd; j++) {
+                double area = Math.abs((x[a] - avgX) * (y[j] - y[a]) - (x[a] - x[j]) * (avgY - y[a]));
+                if (area > maxArea) {
+                    maxArea = area;
+                    picked = j;
+                }
+            }
+            result.add(bucketPoint(data, picked, bucketStart, bucketEnd));
+            a = picked;
+        }
+        result.add(data[n - 1]);
+
+        // back to newest first
+        List<TransitCumulativeSales> newestFirst = new ArrayList<>(result.size());
+        for (int i = result.size() - 1; i >= 0; i--) {
+            newestFirst.add(result.get(i));
+        }
+        return newestFirst;
+    }
+
+    private static TransitCumulativeSales bucketPoint(TransitCumulativeSales[] data, int picked, int bucketStart, int bucketEnd) {
+        TransitCumulativeSales t = new TransitCumulativeSales();
+        t.setDate(data[picked].getDate());
+        t.setCost(data[picked].getCost());
+        t.setSales(data[picked].getSales());
+        int startId = Integer.MAX_VALUE, endId = Integer.MIN_VALUE;
+        for (int j = bucketStart; j < bucketEnd; j++) {
+            startId = Math.min(startId, data[j].getStartDailySalesId());
+            endId = Math.max(endId, data[j].getEndDailySalesId());
+        }
+        t.setStartDailySalesId(startId);
+        t.setEndDailySalesId(endId);
+        return t;
+    }
+}